@@ -0,0 +1,210 @@
+package com.example.chinesedarkchess;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the AI search on a background thread against a private copy of the board and hands
+ * the chosen move back on the main thread. How long and how deep it searches depends on the
+ * {@link Difficulty}, with {@link TimeManager} deciding each move's share of the time.
+ * <p>
+ * At levels that allow it, the same engine ponders while the human thinks: it searches the
+ * human's position, which scores every human move and flip against the AI's replies and
+ * leaves them in the shared transposition table. The AI's real search then starts from those
+ * entries, and if the human played the move the ponder search expected it only needs a
+ * fraction of its usual time.
+ */
+public class AiController {
+    private static final String TAG = "AiController";
+    // Pondering searches in slices, each starting again from the table, and gives up after the
+    // limit rather than running the battery down
+    private static final long PONDER_SLICE_MS = 5000;
+    private static final long PONDER_LIMIT_MS = 60000;
+    // Share of the usual budget the AI takes after the human plays the expected move
+    private static final int PONDER_HIT_DIVISOR = 4;
+    // Move bits that identify a move, without what a capture took
+    private static final int MOVE_MASK = 0x3FF | Move.FLIP;
+
+    public interface Callback {
+        void onAiMove(int move);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ParallelSearch engine =
+            new ParallelSearch(ParallelSearch.defaultThreads(), TranspositionTable.DEFAULT_MEGABYTES);
+    // Only touched on the executor thread
+    private final TimeManager timeManager = new TimeManager();
+    private volatile Difficulty difficulty = Difficulty.NORMAL;
+    private Future<?> pending;
+    private boolean pondering;
+    // The human move the last ponder search expected; written and read on the executor thread
+    private int expectedMove = Move.NONE;
+    // Bumped by every request and cancel; results from older requests are dropped
+    private volatile int requestId;
+
+    /**
+     * Plays endgames exactly from the tables under {@code assets/tablebases}. They are stored
+     * uncompressed in the APK, so each one is mapped straight from the package file.
+     */
+    public void useBundledTablebases(final AssetManager assets) {
+        engine.setTablebase(new Tablebase(new Tablebase.Loader() {
+            @Override
+            public ByteBuffer map(String fileName) throws IOException {
+                AssetFileDescriptor fd = assets.openFd("tablebases/" + fileName);
+                FileInputStream in = fd.createInputStream();
+                try {
+                    return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+                } finally {
+                    in.close();
+                }
+            }
+        }));
+    }
+
+    /** Applies from the next search; stops pondering if the new level does not ponder. */
+    public void setDifficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
+        if (pondering && !difficulty.ponder) {
+            cancel();
+        }
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /** Starts searching {@code board} for its side to move; {@code callback} runs on the main thread. */
+    public void requestMove(Board board, Callback callback) {
+        requestMove(board, Move.NONE, callback);
+    }
+
+    /**
+     * As {@link #requestMove(Board, Callback)}, where {@code lastMove} is the move that
+     * reached {@code board}, as a {@link Move} or {@link GameRecord} entry. If pondering
+     * expected it, the search reuses that work and spends less time.
+     */
+    public void requestMove(Board board, final int lastMove, final Callback callback) {
+        cancel();
+        final Board snapshot = new Board(board);
+        final int id = requestId;
+        // Taken after cancel's stop, so only a later moveNow or cancel ends this search
+        final int stops = engine.getStopGeneration();
+        pending = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (id != requestId) return;
+                // The executor runs one task at a time, so any ponder search has finished by now
+                boolean ponderHit = isPonderHit(lastMove, expectedMove);
+                expectedMove = Move.NONE;
+                Difficulty level = difficulty;
+                long budget = timeManager.budget(snapshot, level.timeMillis);
+                if (ponderHit) budget /= PONDER_HIT_DIVISOR;
+                Trace.beginSection("AI search");
+                long start = System.nanoTime();
+                final int move;
+                try {
+                    move = engine.search(snapshot, budget, level.maxDepth, level.maxNodes, level.threads, stops);
+                } finally {
+                    Trace.endSection();
+                }
+                PerfStats.record(PerfStats.AI_MOVE_TIME, System.nanoTime() - start);
+                PerfStats.add(PerfStats.AI_MOVES, 1);
+                Log.d(TAG, level + " budget " + budget + " ms, depth " + engine.getDepth() + ", " + engine.getNodes() + " nodes, "
+                        + engine.getNodesPerSecond() + " nodes/s on " + engine.getThreads() + " threads"
+                        + (ponderHit ? ", ponder hit" : ""));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (id == requestId) {
+                            pending = null;
+                            callback.onAiMove(move);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Searches {@code board}, where the human is to move, until the next request,
+     * {@link #cancel()} or a minute has passed. Does nothing if already pondering or if the
+     * difficulty does not ponder.
+     */
+    public void ponder(Board board) {
+        final Difficulty level = difficulty;
+        if (pondering || !level.ponder) return;
+        cancel();
+        final Board snapshot = new Board(board);
+        final int id = requestId;
+        // A stop between two slices would be cleared by the next one; the generation is not
+        final int stops = engine.getStopGeneration();
+        pondering = true;
+        pending = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long end = System.currentTimeMillis() + PONDER_LIMIT_MS;
+                while (id == requestId && System.currentTimeMillis() < end) {
+                    // Each slice starts again from the table, so little is searched twice
+                    expectedMove = engine.search(snapshot, PONDER_SLICE_MS, Integer.MAX_VALUE, Long.MAX_VALUE,
+                            level.threads, stops);
+                }
+                Log.d(TAG, "Pondered to depth " + engine.getDepth());
+            }
+        });
+    }
+
+    /**
+     * Whether the human played the move the ponder search expected. A flip has to match in full,
+     * piece and all, and the search only ever expects a flip of some piece at a representative
+     * square of its group, so flips never count: the position they lead to was only one of the
+     * outcomes the search averaged over.
+     */
+    private static boolean isPonderHit(int lastMove, int expectedMove) {
+        if (lastMove == Move.NONE || Move.isFlip(lastMove)) return false;
+        return (lastMove & MOVE_MASK) == (expectedMove & MOVE_MASK);
+    }
+
+    /** Whether a search for the AI's own move is running; pondering does not count. */
+    public boolean isThinking() {
+        return pending != null && !pondering;
+    }
+
+    public boolean isPondering() {
+        return pondering;
+    }
+
+    /** Ends the current search early; the callback still gets the best move found so far. */
+    public void moveNow() {
+        engine.requestStop();
+    }
+
+    /** Abandons the current search or ponder search; a search's callback will not run. */
+    public void cancel() {
+        requestId++;
+        engine.requestStop();
+        pondering = false;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdown();
+        engine.shutdown();
+    }
+}
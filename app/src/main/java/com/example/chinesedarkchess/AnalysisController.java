@@ -0,0 +1,111 @@
+package com.example.chinesedarkchess;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Analysis mode: searches the position on screen on a background thread and streams the best
+ * few moves to the main thread each time an iteration completes. Results are cached by
+ * position key for the session, so going back to a position shows its lines at once and only
+ * deeper iterations are reported after that.
+ */
+public class AnalysisController {
+    public static final int LINES = 3;
+    // Analysis stops on its own after this long on one position
+    private static final long TIME_LIMIT_MS = 30000;
+    private static final int CACHED_POSITIONS = 256;
+    // Kept apart from the AI's table so analysis never changes how the AI plays
+    private static final int TABLE_MEGABYTES = 4;
+
+    public interface Listener {
+        void onAnalysis(Analysis analysis);
+    }
+
+    /**
+     * The best lines found for one position, best first, scored for the side to move. The text
+     * drawn with them is built here, off the main thread, so drawing allocates nothing.
+     */
+    public static final class Analysis {
+        public final long key;
+        public final int depth;
+        public final int[] moves;
+        public final int[] scores;
+        /** "rank: score" for each line. */
+        public final String[] labels;
+        public final String depthLabel;
+
+        Analysis(long key, int depth, int[] moves, int[] scores) {
+            this.key = key;
+            this.depth = depth;
+            this.moves = moves;
+            this.scores = scores;
+            labels = new String[moves.length];
+            for (int i = 0; i < moves.length; i++) {
+                labels[i] = (i + 1) + ": " + (scores[i] > 0 ? "+" : "") + scores[i];
+            }
+            depthLabel = "Depth " + depth;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SearchEngine engine = new SearchEngine(new TranspositionTable(TABLE_MEGABYTES), 0);
+    private final LruCache<Long, Analysis> cache = new LruCache<>(CACHED_POSITIONS);
+    // Bumped by every request and cancel; results from older requests are dropped
+    private volatile int requestId;
+
+    /**
+     * Starts analyzing {@code board}, replacing any earlier analysis. {@code listener} runs on
+     * the main thread, right away if the position is cached and again for each deeper result.
+     */
+    public void analyze(Board board, final Listener listener) {
+        cancel();
+        final long key = board.getKey();
+        Analysis cached = cache.get(key);
+        if (cached != null) {
+            listener.onAnalysis(cached);
+        }
+        final int cachedDepth = cached != null ? cached.depth : 0;
+        final Board snapshot = new Board(board);
+        final int id = requestId;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Cancel bumps the id before stopping, so a stop cleared here is always noticed below
+                engine.clearStop();
+                if (id != requestId) return;
+                engine.analyze(snapshot, LINES, TIME_LIMIT_MS, Integer.MAX_VALUE, new SearchEngine.AnalysisListener() {
+                    @Override
+                    public void onAnalysis(int depth, int[] moves, int[] scores, int count) {
+                        if (depth <= cachedDepth) return;
+                        final Analysis analysis = new Analysis(key, depth,
+                                Arrays.copyOf(moves, count), Arrays.copyOf(scores, count));
+                        cache.put(key, analysis);
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (id == requestId) listener.onAnalysis(analysis);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    /** Stops the current analysis; its listener will not run again. */
+    public void cancel() {
+        requestId++;
+        engine.requestStop();
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+}
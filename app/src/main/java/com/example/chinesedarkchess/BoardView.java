@@ -2,45 +2,95 @@ package com.example.chinesedarkchess;
 
 import android.app.Activity;
 import android.content.Context;
-import android.content.res.AssetManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
-import android.os.Handler;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Trace;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.Toast;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
-
 public class BoardView extends View {
-    private static final String TAG = "BoardView";
+    private static final int PIECE_INSET = 5;
+    private static final int SELECTION_STROKE = 5;
+    // squareState of a face-down piece; face-up pieces use their piece code
+    private static final int COVERED = PieceImageCache.COVERED;
+    // recordedSquares value for a cell whose display list has to be recorded again
+    private static final int STALE = Integer.MIN_VALUE;
+    // Analysis lines, best first
+    private static final int[] LINE_COLORS = {0xC000C853, 0xC0FFD600, 0xC0FF6D00};
+    private static final int LINE_STROKE = 8;
+    private static final long STATS_REFRESH_MS = 1000;
+
     private Board board;
-    private Paint paint;
+    private final Paint selectionPaint;
     private int selectedRow = -1;
     private int selectedCol = -1;
-    private Map<String, Bitmap> pieceImages;
-    private Bitmap coveredImage;
+    // Images scaled to the cell size, indexed as in PieceImageCache; null until decoded
+    private Bitmap[] pieceImages;
+    // Background and empty grid, rendered once per size
+    private Bitmap gridBitmap;
+    // Each square's piece as a display list, replayed every frame and recorded again only when
+    // the square's squareState, the piece images or the cell size change
+    private final RenderNode[] cellNodes = new RenderNode[32];
+    // The squareState each cell node was recorded with, or STALE
+    private final int[] recordedSquares = new int[32];
 
     private int boardLeft, boardTop, boardWidth, boardHeight;
     private int cellWidth, cellHeight;
     private String gameMode;
     private String pieceSet = "chess"; // Default piece set
-    private Handler aiHandler = new Handler();
+    // Each holds a search thread and a transposition table, so they are only created once a game
+    // needs them: the AI for a PVA game, analysis once it is turned on
+    private AiController aiController;
+    private AnalysisController analysisController;
+    private Difficulty difficulty = Difficulty.NORMAL;
+    private boolean analysisEnabled;
+    // Lines shown for the position on the board, or null
+    private AnalysisController.Analysis analysis;
+    private long analyzedKey;
+    private final Paint linePaint;
+    private final Paint labelPaint;
+    private boolean statsEnabled;
+    private final Paint statsPaint;
+    private final Paint statsBackgroundPaint;
+    // Overlay text, rebuilt once a second by statsRefresh so drawing it allocates nothing
+    private final String[] statsLines = new String[PerfStats.counterCount() + 3];
+    private final Runnable statsRefresh = new Runnable() {
+        @Override
+        public void run() {
+            if (!statsEnabled) return;
+            updateStatsLines();
+            invalidate();
+            postDelayed(this, STATS_REFRESH_MS);
+        }
+    };
 
     public BoardView(Context context, AttributeSet attrs) {
         super(context, attrs);
         board = new Board();
-        paint = new Paint();
-        pieceImages = new HashMap<>();
+        board.startRecording();
+        selectionPaint = new Paint();
+        selectionPaint.setColor(Color.YELLOW);
+        selectionPaint.setStrokeWidth(SELECTION_STROKE);
+        selectionPaint.setStyle(Paint.Style.STROKE);
+        linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        linePaint.setStrokeWidth(LINE_STROKE);
+        labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        labelPaint.setColor(Color.WHITE);
+        labelPaint.setTextAlign(Paint.Align.CENTER);
+        statsPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        statsPaint.setColor(Color.WHITE);
+        statsBackgroundPaint = new Paint();
+        statsBackgroundPaint.setColor(0xA0000000);
+        for (int sq = 0; sq < 32; sq++) {
+            cellNodes[sq] = new RenderNode("square");
+        }
+        discardCells();
 
         if (context instanceof GameActivity) {
             gameMode = ((GameActivity) context).getIntent().getStringExtra("GAME_MODE");
@@ -49,42 +99,41 @@ public class BoardView extends View {
 
     public void setPieceSet(String pieceSet) {
         this.pieceSet = pieceSet;
-        loadPieceImages(); // Reload images when the set is changed
+        requestPieceImages();
     }
 
-    private void loadPieceImages() {
-        pieceImages.clear();
-        AssetManager assetManager = getContext().getAssets();
-        try {
-            String[] imageFiles = assetManager.list("images");
-            if (imageFiles == null) {
-                Log.e(TAG, "Asset folder 'images' not found or is empty.");
-                return;
-            }
-            for (String imageFile : imageFiles) {
-                if (imageFile.startsWith(pieceSet) && imageFile.endsWith(".png")) {
-                    String pieceName = imageFile.substring(0, imageFile.length() - 4);
-                    InputStream inputStream = assetManager.open("images/" + imageFile);
-                    Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-                    if (bitmap == null) {
-                        Log.e(TAG, "Failed to decode bitmap: " + imageFile);
-                        continue;
-                    }
-                    pieceImages.put(pieceName, bitmap);
+    /**
+     * Shows this set at the current cell size: immediately if it was decoded before, otherwise
+     * once the shared cache finishes decoding it in the background.
+     */
+    private void requestPieceImages() {
+        final int width = cellWidth - 2 * PIECE_INSET;
+        final int height = cellHeight - 2 * PIECE_INSET;
+        if (width <= 0 || height <= 0) return;
+        PieceImageCache cache = PieceImageCache.get(getContext());
+        Bitmap[] cached = cache.getIfCached(pieceSet, width, height);
+        if (cached != null) {
+            pieceImages = cached;
+            discardCells();
+            invalidate();
+            return;
+        }
+        cache.load(pieceSet, width, height, new PieceImageCache.Callback() {
+            @Override
+            public void onImagesLoaded(String loadedSet, int loadedWidth, int loadedHeight, Bitmap[] images) {
+                // Drop results for a set or size that has since been replaced
+                if (loadedSet.equals(pieceSet) && loadedWidth == cellWidth - 2 * PIECE_INSET
+                        && loadedHeight == cellHeight - 2 * PIECE_INSET) {
+                    pieceImages = images;
+                    discardCells();
+                    invalidate();
                 }
             }
-            // Load the covered piece separately
-            InputStream inputStream = assetManager.open("images/covered_chess_piece.png");
-            coveredImage = BitmapFactory.decodeStream(inputStream);
-
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading piece images", e);
-        }
+        });
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        // ... (sizing logic remains the same)
         super.onSizeChanged(w, h, oldw, oldh);
         int viewWidth = w;
         int viewHeight = h;
@@ -101,12 +150,26 @@ public class BoardView extends View {
         boardTop = (viewHeight - boardHeight) / 2;
         cellWidth = boardWidth / 8;
         cellHeight = boardHeight / 4;
+        labelPaint.setTextSize(cellHeight / 4f);
+        statsPaint.setTextSize(cellHeight / 6f);
+        buildGrid(w, h);
+        for (int sq = 0; sq < 32; sq++) {
+            int left = boardLeft + (sq % 8) * cellWidth;
+            int top = boardTop + (sq / 8) * cellHeight;
+            cellNodes[sq].setPosition(left, top, left + cellWidth, top + cellHeight);
+        }
+        discardCells();
+        requestPieceImages();
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        // ... (drawing logic remains the same)
-        super.onDraw(canvas);
+    private void buildGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            gridBitmap = null;
+            return;
+        }
+        gridBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(gridBitmap);
+        Paint paint = new Paint();
         canvas.drawColor(Color.DKGRAY);
         for (int row = 0; row < 4; row++) {
             for (int col = 0; col < 8; col++) {
@@ -120,26 +183,213 @@ public class BoardView extends View {
                 paint.setColor(Color.BLACK);
                 paint.setStyle(Paint.Style.STROKE);
                 canvas.drawRect(left, top, right, bottom, paint);
-                Piece piece = board.getPiece(row, col);
-                if (piece != null) {
-                    Bitmap pieceBitmap = piece.isFaceUp() ? pieceImages.get(getPieceImageName(piece)) : coveredImage;
-                    if (pieceBitmap != null) {
-                        canvas.drawBitmap(pieceBitmap, null, new Rect(left + 5, top + 5, right - 5, bottom - 5), null);
-                    }
+            }
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        Trace.beginSection("BoardView.onDraw");
+        long start = System.nanoTime();
+        try {
+            drawBoard(canvas);
+        } finally {
+            Trace.endSection();
+        }
+        PerfStats.record(PerfStats.FRAME_TIME, System.nanoTime() - start);
+        if (statsEnabled) {
+            drawStats(canvas);
+        }
+    }
+
+    private void drawBoard(Canvas canvas) {
+        if (gridBitmap != null) {
+            canvas.drawBitmap(gridBitmap, 0, 0, null);
+        }
+        boolean hardware = canvas.isHardwareAccelerated();
+        for (int sq = 0; sq < 32; sq++) {
+            int state = squareState(sq / 8, sq % 8);
+            if (hardware) {
+                if (state != recordedSquares[sq]) {
+                    recordCell(sq, state);
                 }
+                canvas.drawRenderNode(cellNodes[sq]);
+            } else {
+                drawPiece(canvas, state, boardLeft + (sq % 8) * cellWidth, boardTop + (sq / 8) * cellHeight);
             }
         }
         if (selectedRow != -1) {
             int left = boardLeft + selectedCol * cellWidth;
             int top = boardTop + selectedRow * cellHeight;
-            paint.setColor(Color.YELLOW);
-            paint.setStrokeWidth(5);
-            paint.setStyle(Paint.Style.STROKE);
-            canvas.drawRect(left, top, left + cellWidth, top + cellHeight, paint);
-            paint.setStrokeWidth(1);
+            canvas.drawRect(left, top, left + cellWidth, top + cellHeight, selectionPaint);
+        }
+        if (analysis != null) {
+            drawAnalysis(canvas);
+        }
+    }
+
+    private void recordCell(int sq, int state) {
+        RecordingCanvas cell = cellNodes[sq].beginRecording(cellWidth, cellHeight);
+        try {
+            drawPiece(cell, state, 0, 0);
+        } finally {
+            cellNodes[sq].endRecording();
+        }
+        recordedSquares[sq] = state;
+    }
+
+    /** The piece in {@code state} for the cell whose top left corner is at {@code left, top}. */
+    private void drawPiece(Canvas canvas, int state, int left, int top) {
+        if (state < 0 || pieceImages == null) return;
+        Bitmap pieceBitmap = pieceImages[state];
+        if (pieceBitmap != null) {
+            canvas.drawBitmap(pieceBitmap, left + PIECE_INSET, top + PIECE_INSET, null);
+        }
+    }
+
+    /** Makes every cell record its display list again on the next draw. */
+    private void discardCells() {
+        for (int sq = 0; sq < 32; sq++) {
+            recordedSquares[sq] = STALE;
+        }
+    }
+
+    /** Arrows for moves and rings for flips, worst line first so the best is drawn on top. */
+    private void drawAnalysis(Canvas canvas) {
+        for (int i = analysis.moves.length - 1; i >= 0; i--) {
+            int move = analysis.moves[i];
+            int from = Move.from(move);
+            int to = Move.to(move);
+            float fromX = boardLeft + (from % 8 + 0.5f) * cellWidth;
+            float fromY = boardTop + (from / 8 + 0.5f) * cellHeight;
+            float toX = boardLeft + (to % 8 + 0.5f) * cellWidth;
+            float toY = boardTop + (to / 8 + 0.5f) * cellHeight;
+            linePaint.setColor(LINE_COLORS[i % LINE_COLORS.length]);
+            if (Move.isFlip(move)) {
+                linePaint.setStyle(Paint.Style.STROKE);
+                canvas.drawCircle(toX, toY, Math.min(cellWidth, cellHeight) * 0.4f, linePaint);
+            } else {
+                linePaint.setStyle(Paint.Style.FILL);
+                canvas.drawLine(fromX, fromY, toX, toY, linePaint);
+                canvas.drawCircle(toX, toY, LINE_STROKE * 1.5f, linePaint);
+            }
+            canvas.drawText(analysis.labels[i], toX, toY - cellHeight / 4f, labelPaint);
+        }
+        canvas.drawText(analysis.depthLabel, boardLeft + cellWidth / 2f, boardTop - labelPaint.getTextSize() / 2, labelPaint);
+    }
+
+    private void updateStatsLines() {
+        int counters = PerfStats.counterCount();
+        for (int counter = 0; counter < counters; counter++) {
+            statsLines[counter] = PerfStats.counterName(counter) + " " + PerfStats.count(counter);
+        }
+        statsLines[counters] = PerfStats.summary(PerfStats.AI_MOVE_TIME);
+        statsLines[counters + 1] = PerfStats.summary(PerfStats.FRAME_TIME);
+        statsLines[counters + 2] = PerfStats.summary(PerfStats.DECODE_TIME);
+    }
+
+    /**
+     * Counters and timing percentiles from {@link PerfStats} as of the last refresh, bottom left,
+     * outside the frame timing.
+     */
+    private void drawStats(Canvas canvas) {
+        if (statsLines[0] == null) return;
+        float lineHeight = statsPaint.getTextSize() * 1.3f;
+        float top = getHeight() - statsLines.length * lineHeight - lineHeight / 2;
+        canvas.drawRect(0, top, getWidth() / 2f, getHeight(), statsBackgroundPaint);
+        float y = top + lineHeight;
+        for (String line : statsLines) {
+            canvas.drawText(line, lineHeight / 2, y, statsPaint);
+            y += lineHeight;
+        }
+    }
+
+    /** Shows or hides the performance overlay, which refreshes once a second while shown. */
+    public void setStatsEnabled(boolean enabled) {
+        statsEnabled = enabled;
+        removeCallbacks(statsRefresh);
+        if (enabled) {
+            post(statsRefresh);
+        } else {
+            invalidate();
+        }
+    }
+
+    /** Sets how strongly the AI plays in PVA games, from its next move on. */
+    public void setDifficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
+        if (aiController != null) {
+            aiController.setDifficulty(difficulty);
+        }
+    }
+
+    private AiController aiController() {
+        if (aiController == null) {
+            aiController = new AiController();
+            aiController.setDifficulty(difficulty);
+            aiController.useBundledTablebases(getContext().getAssets());
+        }
+        return aiController;
+    }
+
+    private AnalysisController analysisController() {
+        if (analysisController == null) {
+            analysisController = new AnalysisController();
+        }
+        return analysisController;
+    }
+
+    /** Stops the AI's search or pondering, if it has been created. */
+    private void cancelAi() {
+        if (aiController != null) {
+            aiController.cancel();
         }
     }
 
+    /** Shows the engine's best moves for the side to move, kept up to date as the game goes on. */
+    public void setAnalysisEnabled(boolean enabled) {
+        analysisEnabled = enabled;
+        updateAnalysis();
+    }
+
+    /**
+     * Analyzes the current position if analysis is on and a human is to move. In PVA games the
+     * AI's own turn is left alone so the two searches do not compete.
+     */
+    private void updateAnalysis() {
+        boolean wanted = analysisEnabled && board.getCurrentPlayer() != null
+                && board.getGameStatus() == Board.GameStatus.ONGOING
+                && !("PVA".equals(gameMode) && board.getCurrentPlayer() == board.getAiColor());
+        if (!wanted) {
+            if (analysisController != null) {
+                analysisController.cancel();
+            }
+            analyzedKey = 0;
+            if (analysis != null) {
+                analysis = null;
+                invalidate();
+            }
+            return;
+        }
+        long key = board.getKey();
+        if (key == analyzedKey) return;
+        analyzedKey = key;
+        if (analysis != null) {
+            analysis = null;
+            invalidate();
+        }
+        analysisController().analyze(board, new AnalysisController.Listener() {
+            @Override
+            public void onAnalysis(AnalysisController.Analysis result) {
+                if (result.key != board.getKey()) return;
+                analysis = result;
+                // Lines can cross the whole board
+                invalidate();
+            }
+        });
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         if (board.getGameStatus() != Board.GameStatus.ONGOING) {
@@ -148,6 +398,8 @@ public class BoardView extends View {
 
         if (event.getAction() == MotionEvent.ACTION_DOWN) {
             if ("PVA".equals(gameMode) && board.getCurrentPlayer() != null && board.getCurrentPlayer() == board.getAiColor()) {
+                // Tapping while the AI thinks makes it play its best move so far
+                aiController().moveNow();
                 return true;
             }
 
@@ -209,8 +461,11 @@ public class BoardView extends View {
     }
 
     private void checkGameState() {
+        updateAnalysis();
         Board.GameStatus status = board.getGameStatus();
         if (status != Board.GameStatus.ONGOING) {
+            // Stops pondering too
+            cancelAi();
             if (getContext() instanceof GameActivity) {
                 ((GameActivity) getContext()).showWinImage(status);
             }
@@ -220,30 +475,118 @@ public class BoardView extends View {
     }
 
     private void checkAiTurn() {
-        if ("PVA".equals(gameMode) && board.getCurrentPlayer() == board.getAiColor()) {
-            aiHandler.postDelayed(new Runnable() {
+        if (!"PVA".equals(gameMode) || board.getCurrentPlayer() == null) return;
+        if (board.getCurrentPlayer() != board.getAiColor()) {
+            // The human's turn: think about their likely moves in the meantime
+            aiController().ponder(board);
+            return;
+        }
+        if (!aiController().isThinking()) {
+            GameRecord record = board.getRecord();
+            int lastMove = record != null && record.size() > 0 ? record.entry(record.size() - 1) : Move.NONE;
+            aiController().requestMove(board, lastMove, new AiController.Callback() {
                 @Override
-                public void run() {
-                    board.makeAiMove();
+                public void onAiMove(int move) {
+                    board.applyAiMove(move);
                     invalidate();
                     checkGameState();
                 }
-            }, 1500);
+            });
         }
     }
 
-    private String getPieceImageName(Piece piece) {
-        String color = piece.getColor() == Piece.Color.RED ? "red" : "black";
-        String rank = "";
-        switch (piece.getRank()) {
-            case GENERAL: rank = "general"; break;
-            case ADVISOR: rank = "advisor"; break;
-            case ELEPHANT: rank = "elephant"; break;
-            case CHARIOT: rank = "chariot"; break;
-            case HORSE: rank = "horse"; break;
-            case SOLDIER: rank = "soldier"; break; // Corrected typo
-            case CANNON: rank = "cannon"; break;
+    private int squareState(int row, int col) {
+        Piece piece = board.getPiece(row, col);
+        if (piece == null) return -1;
+        return piece.isFaceUp() ? piece.getColor().ordinal() * 7 + piece.getRank().ordinal() : COVERED;
+    }
+
+    /** The game as {@link Board#toBytes()} encodes it, for saving. */
+    public byte[] getSnapshot() {
+        return board.toBytes();
+    }
+
+    /** Every move of the current game, for review and bug reports. */
+    public GameRecord getRecord() {
+        return board.getRecord();
+    }
+
+    /** Whether a game has started and not finished, so there is something worth saving. */
+    public boolean isGameInProgress() {
+        return board.getCurrentPlayer() != null && board.getGameStatus() == Board.GameStatus.ONGOING;
+    }
+
+    /** Whether no piece has been flipped yet, so the turn order is still open. */
+    public boolean isAwaitingFirstMove() {
+        return board.getCurrentPlayer() == null;
+    }
+
+    /**
+     * Replaces the current game with one saved by {@link #getSnapshot()} and carries on from it,
+     * restarting the AI if it is to move. Returns false, keeping the current game, if the
+     * snapshot is unreadable.
+     */
+    public boolean restoreGame(byte[] snapshot) {
+        Board restored;
+        try {
+            restored = Board.fromBytes(snapshot);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        cancelAi();
+        board = restored;
+        // Earlier moves are not in the snapshot, so the record starts here
+        board.startRecording();
+        selectedRow = -1;
+        selectedCol = -1;
+        invalidate();
+        updateAnalysis();
+        if (board.getCurrentPlayer() != null) {
+            checkGameState();
+        }
+        return true;
+    }
+
+    /** Abandons the current game, including any AI search in progress, and deals a new one. */
+    public void restartGame() {
+        cancelAi();
+        board = new Board();
+        board.startRecording();
+        selectedRow = -1;
+        selectedCol = -1;
+        invalidate();
+        updateAnalysis();
+    }
+
+    /** Stops any AI search or pondering; call when the hosting activity pauses. */
+    public void pause() {
+        removeCallbacks(statsRefresh);
+        cancelAi();
+        if (analysisController != null) {
+            analysisController.cancel();
+        }
+        analyzedKey = 0;
+    }
+
+    /** Restarts whatever AI work {@link #pause()} stopped; call when the hosting activity resumes. */
+    public void resume() {
+        if (board.getCurrentPlayer() != null && board.getGameStatus() == Board.GameStatus.ONGOING) {
+            checkAiTurn();
+        }
+        updateAnalysis();
+        if (statsEnabled) {
+            removeCallbacks(statsRefresh);
+            post(statsRefresh);
+        }
+    }
+
+    /** Stops the AI thread; call when the hosting activity is destroyed. */
+    public void release() {
+        if (aiController != null) {
+            aiController.shutdown();
+        }
+        if (analysisController != null) {
+            analysisController.shutdown();
         }
-        return pieceSet + "_" + color + "_" + rank;
     }
-}
\ No newline at end of file
+}
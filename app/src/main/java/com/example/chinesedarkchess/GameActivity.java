@@ -2,20 +2,35 @@ package com.example.chinesedarkchess;
 
 import android.app.AlertDialog;
 import android.content.DialogInterface;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ImageView;
+import android.widget.TextView;
 import android.widget.Toast;
+import android.widget.ToggleButton;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
 import java.util.Random;
 
 public class GameActivity extends AppCompatActivity {
+    /** Intent extra: continue the game in {@link SavedGame} instead of dealing a new one. */
+    public static final String EXTRA_RESUME = "RESUME";
+    private static final String STATE_BOARD = "BOARD";
 
     private BoardView boardView;
     private ImageView redWinImageView;
     private ImageView blackWinImageView;
+    private TextView drawResultView;
+    private ToggleButton analysisToggle;
+    private ToggleButton statsToggle;
     private String pieceSet;
+    private String gameMode;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -25,16 +40,121 @@ public class GameActivity extends AppCompatActivity {
         boardView = findViewById(R.id.boardView);
         redWinImageView = findViewById(R.id.red_win_image);
         blackWinImageView = findViewById(R.id.black_win_image);
+        drawResultView = findViewById(R.id.draw_result);
 
-        String gameMode = getIntent().getStringExtra("GAME_MODE");
+        gameMode = getIntent().getStringExtra("GAME_MODE");
         pieceSet = getIntent().getStringExtra("PIECE_SET");
         boardView.setPieceSet(pieceSet);
+        boardView.setDifficulty(Difficulty.fromName(getIntent().getStringExtra("DIFFICULTY")));
+
+        statsToggle = findViewById(R.id.stats_toggle);
+        statsToggle.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                boardView.setStatsEnabled(statsToggle.isChecked());
+            }
+        });
+        // Long press writes the numbers to a file for comparing builds offline
+        statsToggle.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                dumpStats();
+                return true;
+            }
+        });
+
+        analysisToggle = findViewById(R.id.analysis_toggle);
+        analysisToggle.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                boardView.setAnalysisEnabled(analysisToggle.isChecked());
+            }
+        });
+
+        // Tapping the result starts a new game
+        View.OnClickListener playAgain = new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                redWinImageView.setVisibility(View.GONE);
+                blackWinImageView.setVisibility(View.GONE);
+                drawResultView.setVisibility(View.GONE);
+                boardView.restartGame();
+                if ("PVA".equals(gameMode)) {
+                    showChooseTurnDialog();
+                }
+            }
+        };
+        redWinImageView.setOnClickListener(playAgain);
+        blackWinImageView.setOnClickListener(playAgain);
+        drawResultView.setOnClickListener(playAgain);
+
+        byte[] snapshot = null;
+        if (savedInstanceState != null) {
+            snapshot = savedInstanceState.getByteArray(STATE_BOARD);
+        } else if (getIntent().getBooleanExtra(EXTRA_RESUME, false)) {
+            SavedGame saved = SavedGame.load(this);
+            if (saved != null) snapshot = saved.snapshot;
+        }
+        boolean restored = snapshot != null && boardView.restoreGame(snapshot);
 
-        if ("PVA".equals(gameMode)) {
+        // A restored game that had not started yet still needs its turn order chosen
+        if ("PVA".equals(gameMode) && (!restored || boardView.isAwaitingFirstMove())) {
             showChooseTurnDialog();
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putByteArray(STATE_BOARD, boardView.getSnapshot());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // The toggle has restored its checked state after a rotation by now
+        boardView.setAnalysisEnabled(analysisToggle.isChecked());
+        boardView.setStatsEnabled(statsToggle.isChecked());
+        boardView.resume();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        boardView.pause();
+        // Keep an unfinished game on disk in case the process is killed in the background
+        if (boardView.isGameInProgress()) {
+            SavedGame.save(this, gameMode, boardView.getSnapshot());
+        } else if (!boardView.isAwaitingFirstMove()) {
+            SavedGame.clear(this);
+        }
+        if (boardView.getRecord().size() > 0) {
+            SavedGame.saveRecord(this, boardView.getRecord());
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        boardView.release();
+        super.onDestroy();
+    }
+
+    private void dumpStats() {
+        long now = System.currentTimeMillis();
+        File file = new File(getExternalFilesDir(null), "perf-" + now + ".txt");
+        try {
+            PrintWriter out = new PrintWriter(new FileWriter(file));
+            try {
+                PerfStats.dump(out, Build.MODEL + " " + Build.VERSION.RELEASE + " at " + now);
+            } finally {
+                out.close();
+            }
+            Toast.makeText(this, "Stats written to " + file, Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Toast.makeText(this, "Could not write stats: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
     private void showChooseTurnDialog() {
         new AlertDialog.Builder(this, R.style.DarkDialog)
                 .setTitle("Choose Your Turn")
@@ -71,6 +191,8 @@ public class GameActivity extends AppCompatActivity {
             redWinImageView.setVisibility(View.VISIBLE);
         } else if (status == Board.GameStatus.BLACK_WIN) {
             blackWinImageView.setVisibility(View.VISIBLE);
+        } else if (status == Board.GameStatus.DRAW) {
+            drawResultView.setVisibility(View.VISIBLE);
         }
     }
 }
\ No newline at end of file
@@ -3,13 +3,21 @@ package com.example.chinesedarkchess;
 import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 public class MenuActivity extends AppCompatActivity {
 
+    // Button labels for each Difficulty, in declaration order
+    private static final String[] DIFFICULTY_LABELS = {"入門", "簡單", "普通", "困難"};
+
     private String selectedPieceSet = "chess"; // Default to the original set
+    private Difficulty selectedDifficulty = Difficulty.NORMAL;
+    private Button difficultyButton;
+    private Button continueButton;
+    private String savedGameMode;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -35,6 +43,30 @@ public class MenuActivity extends AppCompatActivity {
             }
         });
 
+        difficultyButton = findViewById(R.id.btn_difficulty);
+        showDifficulty();
+        difficultyButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Difficulty[] levels = Difficulty.values();
+                selectedDifficulty = levels[(selectedDifficulty.ordinal() + 1) % levels.length];
+                showDifficulty();
+            }
+        });
+
+        continueButton = findViewById(R.id.btn_continue);
+        continueButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Intent intent = new Intent(MenuActivity.this, GameActivity.class);
+                intent.putExtra("GAME_MODE", savedGameMode);
+                intent.putExtra("PIECE_SET", selectedPieceSet);
+                intent.putExtra("DIFFICULTY", selectedDifficulty.name());
+                intent.putExtra(GameActivity.EXTRA_RESUME, true);
+                startActivity(intent);
+            }
+        });
+
         findViewById(R.id.btn_player_vs_player).setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -57,10 +89,24 @@ public class MenuActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // The save is a few dozen bytes, so reading it here is cheap
+        SavedGame saved = SavedGame.load(this);
+        savedGameMode = saved != null ? saved.gameMode : null;
+        continueButton.setVisibility(saved != null ? View.VISIBLE : View.GONE);
+    }
+
     private void startGame(String gameMode) {
         Intent intent = new Intent(MenuActivity.this, GameActivity.class);
         intent.putExtra("GAME_MODE", gameMode);
         intent.putExtra("PIECE_SET", selectedPieceSet);
+        intent.putExtra("DIFFICULTY", selectedDifficulty.name());
         startActivity(intent);
     }
+
+    private void showDifficulty() {
+        difficultyButton.setText("難度：" + DIFFICULTY_LABELS[selectedDifficulty.ordinal()]);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.example.chinesedarkchess;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache of piece images decoded for one piece set at one cell size. Decoding runs
+ * on a background thread and downsamples while decoding, so a set never exists at full asset
+ * resolution in memory. Sets stay cached across games until the memory cap evicts them.
+ */
+public class PieceImageCache {
+    private static final String TAG = "PieceImageCache";
+
+    /** Index of the face-down image; face-up images are indexed by piece code (color * 7 + rank). */
+    public static final int COVERED = 14;
+
+    public interface Callback {
+        void onImagesLoaded(String pieceSet, int width, int height, Bitmap[] images);
+    }
+
+    private static PieceImageCache instance;
+
+    private final AssetManager assets;
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap[]> cache;
+
+    public static synchronized PieceImageCache get(Context context) {
+        if (instance == null) {
+            instance = new PieceImageCache(context.getApplicationContext().getAssets());
+        }
+        return instance;
+    }
+
+    private PieceImageCache(AssetManager assets) {
+        this.assets = assets;
+        // An eighth of the heap, measured in kilobytes
+        int maxKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        cache = new LruCache<String, Bitmap[]>(maxKilobytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap[] images) {
+                int bytes = 0;
+                for (Bitmap image : images) {
+                    if (image != null) bytes += image.getAllocationByteCount();
+                }
+                return Math.max(1, bytes / 1024);
+            }
+        };
+    }
+
+    private static String key(String pieceSet, int width, int height) {
+        return pieceSet + "@" + width + "x" + height;
+    }
+
+    /** Returns the images if this set and size were decoded before, without blocking. */
+    public Bitmap[] getIfCached(String pieceSet, int width, int height) {
+        return cache.get(key(pieceSet, width, height));
+    }
+
+    /** Decodes the set on the background thread; {@code callback} runs on the main thread. */
+    public void load(final String pieceSet, final int width, final int height, final Callback callback) {
+        decoder.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String key = key(pieceSet, width, height);
+                Bitmap[] images = cache.get(key);
+                if (images == null) {
+                    Trace.beginSection("Decode piece set");
+                    long start = System.nanoTime();
+                    try {
+                        images = decodeSet(pieceSet, width, height);
+                    } finally {
+                        Trace.endSection();
+                    }
+                    PerfStats.record(PerfStats.DECODE_TIME, System.nanoTime() - start);
+                    cache.put(key, images);
+                }
+                final Bitmap[] loaded = images;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onImagesLoaded(pieceSet, width, height, loaded);
+                    }
+                });
+            }
+        });
+    }
+
+    private Bitmap[] decodeSet(String pieceSet, int width, int height) {
+        Bitmap[] images = new Bitmap[COVERED + 1];
+        for (Piece.Color color : Piece.Color.values()) {
+            for (Piece.Rank rank : Piece.Rank.values()) {
+                images[color.ordinal() * 7 + rank.ordinal()] =
+                        decode(getPieceImageName(pieceSet, color, rank) + ".png", width, height);
+            }
+        }
+        images[COVERED] = decode("covered_chess_piece.png", width, height);
+        return images;
+    }
+
+    private Bitmap decode(String imageFile, int width, int height) {
+        String path = "images/" + imageFile;
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            InputStream bounds = assets.open(path);
+            try {
+                BitmapFactory.decodeStream(bounds, null, options);
+            } finally {
+                bounds.close();
+            }
+            // Largest power of two that still decodes at least the target size
+            int sampleSize = 1;
+            while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            InputStream inputStream = assets.open(path);
+            Bitmap bitmap;
+            try {
+                bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            } finally {
+                inputStream.close();
+            }
+            if (bitmap == null) {
+                Log.e(TAG, "Failed to decode bitmap: " + imageFile);
+                return null;
+            }
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap, width, height, true);
+            if (scaled != bitmap) {
+                bitmap.recycle();
+            }
+            return scaled;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading piece image " + imageFile, e);
+            return null;
+        }
+    }
+
+    private static String getPieceImageName(String pieceSet, Piece.Color pieceColor, Piece.Rank pieceRank) {
+        String color = pieceColor == Piece.Color.RED ? "red" : "black";
+        String rank = "";
+        switch (pieceRank) {
+            case GENERAL: rank = "general"; break;
+            case ADVISOR: rank = "advisor"; break;
+            case ELEPHANT: rank = "elephant"; break;
+            case CHARIOT: rank = "chariot"; break;
+            case HORSE: rank = "horse"; break;
+            case SOLDIER: rank = "soldier"; break;
+            case CANNON: rank = "cannon"; break;
+        }
+        return pieceSet + "_" + color + "_" + rank;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.chinesedarkchess;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The unfinished game kept in app storage, so it can be continued after the process dies.
+ * The file is one game-mode byte followed by a {@link Board#toBytes()} snapshot. Writes run
+ * in order on a background thread and go to a temporary file renamed over the old one, so
+ * a crash mid-write leaves the previous save intact.
+ */
+public class SavedGame {
+    private static final String TAG = "SavedGame";
+    private static final String FILE_NAME = "saved_game.bin";
+    private static final String RECORD_FILE_NAME = "last_game.rec";
+    private static final String PVP = "PVP";
+    private static final String PVA = "PVA";
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+    // The record the record file holds, so later saves of it only append; main thread only
+    private static GameRecord savedRecord;
+
+    public final String gameMode;
+    public final byte[] snapshot;
+
+    private SavedGame(String gameMode, byte[] snapshot) {
+        this.gameMode = gameMode;
+        this.snapshot = snapshot;
+    }
+
+    /** Replaces the saved game in the background. */
+    public static void save(Context context, String gameMode, byte[] snapshot) {
+        byte[] data = new byte[1 + snapshot.length];
+        data[0] = (byte) (PVA.equals(gameMode) ? 1 : 0);
+        System.arraycopy(snapshot, 0, data, 1, snapshot.length);
+        write(file(context), data);
+    }
+
+    /**
+     * Keeps the latest game's {@link GameRecord} next to the save, so a game that went wrong
+     * can be replayed move by move. A record already saved only has the plies since appended
+     * with {@link GameRecord#writeNew}; a new one replaces the file. Those bytes are copied
+     * here, since the record goes on growing; the write runs in the background. Call it once the
+     * record has its first ply, which settles the header.
+     */
+    public static void saveRecord(Context context, GameRecord record) {
+        boolean replace = record != savedRecord;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            if (replace) {
+                record.writeTo(bytes);
+            } else {
+                record.writeNew(bytes);
+            }
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new AssertionError(e);
+        }
+        savedRecord = record;
+        File file = new File(context.getApplicationContext().getFilesDir(), RECORD_FILE_NAME);
+        if (replace) {
+            write(file, bytes.toByteArray());
+        } else if (bytes.size() > 0) {
+            append(file, bytes.toByteArray());
+        }
+    }
+
+    private static void write(final File file, final byte[] data) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                File temp = new File(file.getPath() + ".tmp");
+                try {
+                    OutputStream out = new FileOutputStream(temp);
+                    try {
+                        out.write(data);
+                    } finally {
+                        out.close();
+                    }
+                    if (!temp.renameTo(file)) {
+                        Log.e(TAG, "Could not replace " + file);
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Error writing " + file, e);
+                }
+            }
+        });
+    }
+
+    /** Adds {@code data} to the end of {@code file} in the background, after any write still queued. */
+    private static void append(final File file, final byte[] data) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    OutputStream out = new FileOutputStream(file, true);
+                    try {
+                        out.write(data);
+                    } finally {
+                        out.close();
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Error appending to " + file, e);
+                }
+            }
+        });
+    }
+
+    /** Deletes the saved game in the background, after any save still queued. */
+    public static void clear(Context context) {
+        final File file = file(context);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                file.delete();
+            }
+        });
+    }
+
+    /** Reads the saved game, or returns null if there is none or it cannot be read. */
+    public static SavedGame load(Context context) {
+        File file = file(context);
+        if (file.length() != 1 + Board.SNAPSHOT_BYTES) return null;
+        byte[] data = new byte[1 + Board.SNAPSHOT_BYTES];
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                int read = 0;
+                while (read < data.length) {
+                    int n = in.read(data, read, data.length - read);
+                    if (n < 0) return null;
+                    read += n;
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading saved game", e);
+            return null;
+        }
+        byte[] snapshot = new byte[Board.SNAPSHOT_BYTES];
+        System.arraycopy(data, 1, snapshot, 0, snapshot.length);
+        return new SavedGame(data[0] == 1 ? PVA : PVP, snapshot);
+    }
+
+    private static File file(Context context) {
+        return new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+    }
+}
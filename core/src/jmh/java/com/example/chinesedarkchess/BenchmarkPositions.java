@@ -0,0 +1,51 @@
+package com.example.chinesedarkchess;
+
+import java.util.Random;
+
+/** Reproducible opening, middlegame and endgame positions reached by seeded random play. */
+final class BenchmarkPositions {
+    static final long[] SEEDS = {1, 2, 3, 4, 5, 6, 7, 8};
+    static final int OPENING = 4;
+    static final int MIDDLEGAME = 24;
+    static final int ENDGAME = 60;
+
+    private BenchmarkPositions() {
+    }
+
+    static Board[] suite() {
+        int[] phases = {OPENING, MIDDLEGAME, ENDGAME};
+        Board[] suite = new Board[SEEDS.length * phases.length];
+        int n = 0;
+        for (long seed : SEEDS) {
+            for (int plies : phases) {
+                suite[n++] = play(seed, plies);
+            }
+        }
+        return suite;
+    }
+
+    static Board[] phase(int plies) {
+        Board[] positions = new Board[SEEDS.length];
+        for (int i = 0; i < SEEDS.length; i++) {
+            positions[i] = play(SEEDS[i], plies);
+        }
+        return positions;
+    }
+
+    static Board play(long seed, int plies) {
+        Board board = new Board(seed);
+        Random random = new Random(seed);
+        int[] moves = new int[Move.MAX_MOVES];
+        board.forceAiFirstMove();
+        for (int ply = 0; ply < plies && board.getGameStatus() == Board.GameStatus.ONGOING; ply++) {
+            int color = board.getCurrentPlayer().ordinal();
+            // Prefer captures so later positions thin out like real games do
+            int count = MoveGenerator.generateCaptures(board, color, moves, 0);
+            if (count == 0 || random.nextInt(3) == 0) {
+                count = MoveGenerator.generateAll(board, color, moves, 0);
+            }
+            board.applyAiMove(moves[random.nextInt(count)]);
+        }
+        return board;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.chinesedarkchess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board hot paths over the {@link BenchmarkPositions} suite for one game phase. Each
+ * invocation walks every position in the phase, so scores are per suite, not per board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    @Param({"4", "24", "60"})
+    public int plies;
+
+    private Board[] positions;
+    private final int[] moves = new int[Move.MAX_MOVES];
+    private final int[][] perftMoves = new int[3][Move.MAX_MOVES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        positions = BenchmarkPositions.phase(plies);
+    }
+
+    /** Every from/to pair on the board, as the UI would check a tap. */
+    @Benchmark
+    public int isValidMove() {
+        int valid = 0;
+        for (Board board : positions) {
+            for (int from = 0; from < Board.SQUARES; from++) {
+                for (int to = 0; to < Board.SQUARES; to++) {
+                    if (board.isValidMove(from / Board.COLS, from % Board.COLS, to / Board.COLS, to % Board.COLS)) {
+                        valid++;
+                    }
+                }
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int generateAll() {
+        int total = 0;
+        for (Board board : positions) {
+            if (board.getCurrentPlayer() == null) continue;
+            total += MoveGenerator.generateAll(board, board.getCurrentPlayer().ordinal(), moves, 0);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void checkWinCondition(Blackhole blackhole) {
+        for (Board board : positions) {
+            board.checkWinCondition();
+            blackhole.consume(board.getGameStatus());
+        }
+    }
+
+    @Benchmark
+    public long perft3() {
+        long nodes = 0;
+        for (Board board : positions) {
+            nodes += Perft.perft(board, 3, perftMoves);
+        }
+        return nodes;
+    }
+}
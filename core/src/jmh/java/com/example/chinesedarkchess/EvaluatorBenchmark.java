@@ -0,0 +1,46 @@
+package com.example.chinesedarkchess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Evaluations per second over the whole {@link BenchmarkPositions} suite, all phases mixed. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+    // Eight seeds times three phases
+    private static final int POSITIONS = 24;
+
+    private Board[] positions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        positions = BenchmarkPositions.suite();
+        if (positions.length != POSITIONS) throw new IllegalStateException("Suite size changed");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int evaluate() {
+        int sum = 0;
+        for (Board board : positions) {
+            sum += Evaluator.evaluate(board);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Counts the leaf nodes of the full move tree to a fixed depth. Flips reveal whatever is
+ * really under the square, so counts are exact for a given seed and catch any change to
+ * move generation or make/unmake. Run with {@code gradlew :core:perft --args="[seed] [depth]"}.
+ */
+public final class Perft {
+    private Perft() {
+    }
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Board board = BenchmarkPositions.play(seed, BenchmarkPositions.MIDDLEGAME);
+        int[][] moves = new int[maxDepth][Move.MAX_MOVES];
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long start = System.nanoTime();
+            long nodes = perft(board, depth, moves);
+            long micros = Math.max(1, (System.nanoTime() - start) / 1000);
+            System.out.println("perft(" + depth + ") = " + nodes + " in " + micros / 1000 + " ms, "
+                    + nodes * 1000000 / micros + " nodes/s");
+        }
+    }
+
+    /** {@code moves} holds one buffer per remaining ply. */
+    static long perft(Board board, int depth, int[][] moves) {
+        if (depth == 0 || board.getGameStatus() != Board.GameStatus.ONGOING) return 1;
+        int[] buffer = moves[depth - 1];
+        int count = MoveGenerator.generateAll(board, board.getCurrentPlayer().ordinal(), buffer, 0);
+        if (depth == 1) return count;
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(buffer[i]);
+            nodes += perft(board, depth - 1, moves);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.chinesedarkchess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI move selection to a fixed depth on one thread, so the score tracks search efficiency
+ * rather than the time budget. The table is cleared before every invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"4", "24", "60"})
+    public int plies;
+
+    @Param({"4"})
+    public int depth;
+
+    private Board[] positions;
+    private TranspositionTable table;
+    private SearchEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        positions = BenchmarkPositions.phase(plies);
+        table = new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES);
+        engine = new SearchEngine(table, 0);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Benchmark
+    public int selectMove() {
+        int moves = 0;
+        for (Board board : positions) {
+            moves += engine.search(board, Long.MAX_VALUE / 4, depth);
+        }
+        return moves;
+    }
+}
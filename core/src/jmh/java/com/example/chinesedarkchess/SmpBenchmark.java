@@ -0,0 +1,66 @@
+package com.example.chinesedarkchess;
+
+import java.util.Locale;
+
+/**
+ * Measures how {@link ParallelSearch} scales from 1 to N threads on a fixed suite of seeded
+ * positions: nodes per second under a fixed time budget, and wall time to reach a fixed depth.
+ * Run with {@code gradlew :core:smpBenchmark --args="[maxThreads] [depth] [millis]"}.
+ */
+public class SmpBenchmark {
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : ParallelSearch.defaultThreads();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        Board[] suite = BenchmarkPositions.suite();
+        warmUp(suite, millis);
+
+        System.out.println(String.format(Locale.US, "%d positions, time-to-depth %d, %d ms per search",
+                suite.length, depth, millis));
+        System.out.println("threads  nodes/s      speedup  ms-to-depth  speedup");
+        double baseNps = 0;
+        double baseTime = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ParallelSearch search = new ParallelSearch(threads, TranspositionTable.DEFAULT_MEGABYTES);
+            long nodes = 0;
+            long elapsed = 0;
+            for (Board position : suite) {
+                long start = System.nanoTime();
+                search.search(position, millis);
+                elapsed += System.nanoTime() - start;
+                nodes += search.getNodes();
+            }
+            search.shutdown();
+            double nps = nodes * 1e9 / elapsed;
+
+            long toDepth = 0;
+            for (Board position : suite) {
+                search = new ParallelSearch(threads, TranspositionTable.DEFAULT_MEGABYTES);
+                long start = System.nanoTime();
+                search.search(position, Long.MAX_VALUE / 4, depth);
+                toDepth += System.nanoTime() - start;
+                search.shutdown();
+            }
+            double time = toDepth / 1e6 / suite.length;
+
+            if (threads == 1) {
+                baseNps = nps;
+                baseTime = time;
+            }
+            System.out.println(String.format(Locale.US, "%7d  %11.0f  %6.2fx  %11.1f  %6.2fx",
+                    threads, nps, nps / baseNps, time, baseTime / time));
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                threads = maxThreads / 2;
+            }
+        }
+    }
+
+    // Lets the JIT compile the search before the single-thread baseline is measured
+    private static void warmUp(Board[] suite, long millis) {
+        ParallelSearch search = new ParallelSearch(1, TranspositionTable.DEFAULT_MEGABYTES);
+        for (Board position : suite) {
+            search.search(position, millis);
+        }
+        search.shutdown();
+    }
+}
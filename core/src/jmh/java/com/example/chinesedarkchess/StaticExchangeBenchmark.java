@@ -0,0 +1,62 @@
+package com.example.chinesedarkchess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to resolve the exchange of every capture available in the {@link BenchmarkPositions}
+ * middlegames and endgames, against the cost of generating those captures in the first place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaticExchangeBenchmark {
+    private Board[] positions;
+    private final int[] moves = new int[Move.MAX_MOVES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Board[] middlegames = BenchmarkPositions.phase(BenchmarkPositions.MIDDLEGAME);
+        Board[] endgames = BenchmarkPositions.phase(BenchmarkPositions.ENDGAME);
+        positions = new Board[middlegames.length + endgames.length];
+        System.arraycopy(middlegames, 0, positions, 0, middlegames.length);
+        System.arraycopy(endgames, 0, positions, middlegames.length, endgames.length);
+    }
+
+    @Benchmark
+    public int generateCaptures() {
+        int count = 0;
+        for (Board board : positions) {
+            if (board.getCurrentPlayer() == null) continue;
+            count += MoveGenerator.generateCaptures(board, board.getCurrentPlayer().ordinal(), moves, 0);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int generateAndExchange() {
+        int sum = 0;
+        for (Board board : positions) {
+            if (board.getCurrentPlayer() == null) continue;
+            int count = MoveGenerator.generateCaptures(board, board.getCurrentPlayer().ordinal(), moves, 0);
+            for (int i = 0; i < count; i++) {
+                sum += StaticExchange.evaluate(board, moves[i]);
+            }
+        }
+        return sum;
+    }
+}
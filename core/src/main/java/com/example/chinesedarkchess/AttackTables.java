@@ -0,0 +1,92 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Lookup tables for move legality, built once when the class loads: which ranks may capture
+ * which, each square's neighbours, and the rays a cannon scans along. Squares are
+ * {@code row * 8 + col} as in {@link Board}; every set of squares is a 32-bit mask.
+ */
+final class AttackTables {
+    static final int NORTH = 0;
+    static final int SOUTH = 1;
+    static final int WEST = 2;
+    static final int EAST = 3;
+
+    /** Defender ranks each attacker rank may capture, one bit per rank. */
+    static final int[] VICTIM_RANKS = new int[7];
+    /** Squares orthogonally next to each square. */
+    static final int[] NEIGHBORS = new int[Board.SQUARES];
+    /** Squares from each square to the board edge in each direction, the square itself excluded. */
+    static final int[][] RAYS = new int[4][Board.SQUARES];
+    /** Squares strictly between two squares on the same row or column, indexed {@code from * 32 + to}. */
+    static final int[] BETWEEN = new int[Board.SQUARES * Board.SQUARES];
+    /** Squares sharing a row or column with each square, the square itself excluded. */
+    static final int[] LINES = new int[Board.SQUARES];
+
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+    private static final int[] COL_STEPS = {0, 0, -1, 1};
+
+    static {
+        for (int attacker = 0; attacker < 7; attacker++) {
+            for (int defender = 0; defender < 7; defender++) {
+                boolean captures;
+                if (attacker == Board.CANNON) {
+                    captures = true;
+                } else if (attacker == Board.GENERAL) {
+                    captures = defender != Board.SOLDIER;
+                } else if (attacker == Board.SOLDIER) {
+                    captures = defender == Board.GENERAL || defender == Board.SOLDIER;
+                } else {
+                    captures = attacker <= defender;
+                }
+                if (captures) VICTIM_RANKS[attacker] |= 1 << defender;
+            }
+        }
+
+        for (int sq = 0; sq < Board.SQUARES; sq++) {
+            int row = sq >> 3;
+            int col = sq & 7;
+            for (int dir = 0; dir < 4; dir++) {
+                int between = 0;
+                for (int r = row + ROW_STEPS[dir], c = col + COL_STEPS[dir];
+                     r >= 0 && r < Board.ROWS && c >= 0 && c < Board.COLS;
+                     r += ROW_STEPS[dir], c += COL_STEPS[dir]) {
+                    int to = Board.square(r, c);
+                    if (between == 0) NEIGHBORS[sq] |= 1 << to;
+                    RAYS[dir][sq] |= 1 << to;
+                    BETWEEN[sq * Board.SQUARES + to] = between;
+                    between |= 1 << to;
+                }
+                LINES[sq] |= RAYS[dir][sq];
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    static boolean canCapture(int attacker, int defender) {
+        return (VICTIM_RANKS[attacker] & (1 << defender)) != 0;
+    }
+
+    /** The nearest square in {@code blockers} along the ray from {@code sq}, or -1 if there is none. */
+    static int firstBlocker(int dir, int sq, int blockers) {
+        int hits = RAYS[dir][sq] & blockers;
+        if (hits == 0) return -1;
+        // Rays towards higher squares meet their lowest bit first
+        return dir == SOUTH || dir == EAST
+                ? Integer.numberOfTrailingZeros(hits)
+                : 31 - Integer.numberOfLeadingZeros(hits);
+    }
+
+    /** Empty squares a cannon on {@code sq} can slide to along {@code dir}. */
+    static int slides(int dir, int sq, int occupied) {
+        int screen = firstBlocker(dir, sq, occupied);
+        return screen < 0 ? RAYS[dir][sq] : RAYS[dir][sq] & ~RAYS[dir][screen] & ~(1 << screen);
+    }
+
+    /** The square a cannon on {@code sq} lands on when jumping along {@code dir}, or -1. */
+    static int cannonTarget(int dir, int sq, int occupied) {
+        int screen = firstBlocker(dir, sq, occupied);
+        return screen < 0 ? -1 : firstBlocker(dir, screen, occupied);
+    }
+}
@@ -0,0 +1,756 @@
+package com.example.chinesedarkchess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class Board {
+    // Squares are numbered row * 8 + col, so the whole 4x8 board fits one int mask.
+    static final int ROWS = 4;
+    static final int COLS = 8;
+    static final int SQUARES = 32;
+    static final int EMPTY = -1;
+
+    static final int RED = 0;
+    static final int BLACK = 1;
+    static final int GENERAL = 0;
+    static final int SOLDIER = 5;
+    static final int CANNON = 6;
+
+    private static final int FILE_A = 0x01010101;
+    private static final int FILE_H = 0x80808080;
+
+    // Piece code = color * 7 + rank, matching the enum ordinals in Piece.
+    private final int[] pieceMasks = new int[14];
+    private final int[] colorMasks = new int[2];
+    private final byte[] squares = new byte[SQUARES];
+    private int hiddenMask;
+    private int emptyMask;
+    // Face-down pieces still unrevealed, per code. This is what a player knows about hidden squares.
+    private final int[] hiddenCounts = new int[14];
+    private int hiddenCount;
+    // Pieces left per color, face-down ones included
+    private final int[] pieceCounts = new int[2];
+    // Zobrist key of everything but the side to move, see getKey()
+    private long key;
+    // Red's material minus black's, see getMaterial()
+    private int material;
+
+    public static final long AI_TIME_BUDGET_MS = 1500;
+
+    // Reusable move buffer so win checks never allocate
+    private final int[] winCheckMoves = new int[Move.MAX_MOVES];
+    // Calls to checkWinCondition on this board; searches add theirs to PerfStats when they end
+    private long winChecks;
+    private final Random random;
+    private SearchEngine engine;
+    // Logs moves made through the public game methods; never the search's makeMove
+    private GameRecord record;
+
+    // Undo stack for makeMove/unmakeMove; MAX_PLY bounds how deep a search may go.
+    static final int MAX_PLY = 128;
+    private final int[] undoMoves = new int[MAX_PLY];
+    private final int[] undoStates = new int[MAX_PLY];
+    private final long[] undoKeys = new long[MAX_PLY];
+    private int undoCount;
+
+    /** Plies in a row without a capture or flip after which the game is drawn. */
+    public static final int NO_PROGRESS_LIMIT = 100;
+    /** Occurrences of one position, same side to move, after which the game is drawn. */
+    public static final int REPETITION_LIMIT = 3;
+    private static final int KEY_FILTER_MASK = 1023;
+    // Plies since the last capture or flip
+    private int quietPlies;
+    // getKey() of each position since the last capture or flip in the game, then of each
+    // position made by a search on top; the last is the current position. Positions before a
+    // capture or flip can never recur, so the game part is cut there, and a drawn game played
+    // on keeps only its latest positions, so a search always has room for MAX_PLY more.
+    private final long[] keyHistory = new long[NO_PROGRESS_LIMIT + MAX_PLY + 1];
+    private int historyCount;
+    // History keys per bucket of their low bits. A position alone in its bucket has not
+    // occurred before, which answers almost every repetition check without a scan.
+    private final short[] keyFilter = new short[KEY_FILTER_MASK + 1];
+
+    private Piece.Color currentPlayer;
+    private Piece.Color playerColor;
+    private Piece.Color aiColor;
+    private boolean firstMove;
+    private GameStatus gameStatus;
+
+    public enum GameStatus {
+        ONGOING,
+        RED_WIN,
+        BLACK_WIN,
+        /** By repetition or after {@link #NO_PROGRESS_LIMIT} plies without a capture or flip. */
+        DRAW
+    }
+
+    /** Length of {@link #toBytes()}. */
+    public static final int SNAPSHOT_BYTES = 35;
+    private static final byte SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_EMPTY = 15;
+
+    // Cached enum tables; values() would allocate a fresh array on every unmake
+    private static final Piece.Color[] COLORS = Piece.Color.values();
+    private static final GameStatus[] STATUSES = GameStatus.values();
+
+    public Board() {
+        this(new Random());
+    }
+
+    /** A game whose shuffle and AI coin flips all come from {@code seed}, so it can be replayed exactly. */
+    public Board(long seed) {
+        this(new Random(seed));
+    }
+
+    private Board(Random random) {
+        this(random, true);
+    }
+
+    private Board(Random random, boolean deal) {
+        this.random = random;
+        if (deal) {
+            initializePieces();
+        }
+        currentPlayer = null;
+        playerColor = null;
+        aiColor = null;
+        firstMove = true;
+        gameStatus = GameStatus.ONGOING;
+        resetHistory();
+    }
+
+    /**
+     * A copy of {@code other}'s position, for searching on another thread. The undo stack and
+     * record are not copied; the positions since the last capture or flip are, so a search
+     * of the copy still sees repetitions of the game.
+     */
+    public Board(Board other) {
+        random = new Random();
+        System.arraycopy(other.pieceMasks, 0, pieceMasks, 0, pieceMasks.length);
+        System.arraycopy(other.colorMasks, 0, colorMasks, 0, colorMasks.length);
+        System.arraycopy(other.squares, 0, squares, 0, SQUARES);
+        System.arraycopy(other.hiddenCounts, 0, hiddenCounts, 0, hiddenCounts.length);
+        System.arraycopy(other.pieceCounts, 0, pieceCounts, 0, pieceCounts.length);
+        hiddenMask = other.hiddenMask;
+        emptyMask = other.emptyMask;
+        hiddenCount = other.hiddenCount;
+        key = other.key;
+        material = other.material;
+        currentPlayer = other.currentPlayer;
+        playerColor = other.playerColor;
+        aiColor = other.aiColor;
+        firstMove = other.firstMove;
+        gameStatus = other.gameStatus;
+        int copied = Math.min(other.historyCount, other.quietPlies + 1);
+        for (int i = other.historyCount - copied; i < other.historyCount; i++) {
+            pushKey(other.keyHistory[i]);
+        }
+        quietPlies = other.quietPlies;
+    }
+
+    private void initializePieces() {
+        List<Integer> pieces = new ArrayList<>();
+        for (int color = RED; color <= BLACK; color++) {
+            // General, 2 advisors, 2 elephants, 2 chariots, 2 horses, 5 soldiers, 2 cannons
+            int[] counts = {1, 2, 2, 2, 2, 5, 2};
+            for (int rank = 0; rank < 7; rank++) {
+                for (int i = 0; i < counts[rank]; i++) {
+                    pieces.add(code(color, rank));
+                }
+            }
+        }
+
+        Collections.shuffle(pieces, random);
+
+        emptyMask = 0;
+        hiddenMask = -1;
+        hiddenCount = SQUARES;
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int code = pieces.get(sq);
+            squares[sq] = (byte) code;
+            pieceMasks[code] |= 1 << sq;
+            colorMasks[colorOf(code)] |= 1 << sq;
+            pieceCounts[colorOf(code)]++;
+            hiddenCounts[code]++;
+            key ^= Zobrist.HIDDEN[sq];
+        }
+        for (int code = 0; code < 14; code++) {
+            key ^= Zobrist.pool(code, hiddenCounts[code]);
+        }
+    }
+
+    /**
+     * Replaces the position with {@code count} face-up pieces and nothing hidden, {@code toMove}
+     * to play. Used by endgame analysis; move history is discarded.
+     */
+    void setPosition(int[] codes, int[] squareList, int count, int toMove) {
+        clear();
+        for (int i = 0; i < count; i++) {
+            putPiece(squareList[i], codes[i]);
+        }
+        firstMove = false;
+        currentPlayer = COLORS[toMove];
+        gameStatus = GameStatus.ONGOING;
+        resetHistory();
+        checkWinCondition();
+    }
+
+    /** Empties the board, with the hidden pool and move history to match. */
+    private void clear() {
+        Arrays.fill(pieceMasks, 0);
+        Arrays.fill(colorMasks, 0);
+        Arrays.fill(squares, (byte) EMPTY);
+        Arrays.fill(hiddenCounts, 0);
+        Arrays.fill(pieceCounts, 0);
+        hiddenMask = 0;
+        hiddenCount = 0;
+        emptyMask = -1;
+        key = 0;
+        material = 0;
+        for (int code = 0; code < 14; code++) {
+            key ^= Zobrist.pool(code, 0);
+        }
+        undoCount = 0;
+    }
+
+    /**
+     * The position and game state in {@link #SNAPSHOT_BYTES} bytes, for saving a game.
+     * Byte 0 is the format version and bytes 1 to 32 hold one square each: the piece code,
+     * or 15 for empty, with bit 4 set while face down. The last two bytes pack the side to
+     * move, player and AI colors (0 for none, else color + 1), the first-move flag and the status.
+     * Move history is not included.
+     */
+    public byte[] toBytes() {
+        byte[] data = new byte[SNAPSHOT_BYTES];
+        toBytes(data, 0);
+        return data;
+    }
+
+    /** As {@link #toBytes()}, into {@code data} from {@code offset}. */
+    public void toBytes(byte[] data, int offset) {
+        data[offset] = SNAPSHOT_VERSION;
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int code = squares[sq];
+            data[offset + 1 + sq] = (byte) (code == EMPTY ? SNAPSHOT_EMPTY : code | ((hiddenMask >>> sq & 1) << 4));
+        }
+        data[offset + 1 + SQUARES] = (byte) (colorState(currentPlayer) | colorState(playerColor) << 2
+                | colorState(aiColor) << 4 | (firstMove ? 1 << 6 : 0));
+        data[offset + 2 + SQUARES] = (byte) gameStatus.ordinal();
+    }
+
+    /** Rebuilds a board saved by {@link #toBytes()}. */
+    public static Board fromBytes(byte[] data) {
+        if (data == null || data.length != SNAPSHOT_BYTES) {
+            throw new IllegalArgumentException("Not a board snapshot");
+        }
+        return fromBytes(data, 0);
+    }
+
+    /** As {@link #fromBytes(byte[])}, reading {@link #SNAPSHOT_BYTES} bytes from {@code offset}. */
+    public static Board fromBytes(byte[] data, int offset) {
+        if (data[offset] != SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Not a board snapshot");
+        }
+        int state = data[offset + 1 + SQUARES];
+        int status = data[offset + 2 + SQUARES];
+        if ((state & 0x80) != 0 || status < 0 || status >= STATUSES.length) {
+            throw new IllegalArgumentException("Corrupt board snapshot");
+        }
+        Board board = new Board(new Random(), false);
+        board.clear();
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int value = data[offset + 1 + sq] & 0xFF;
+            if (value == SNAPSHOT_EMPTY) continue;
+            int code = value & 15;
+            if (code >= 14 || value > 31) throw new IllegalArgumentException("Corrupt board snapshot");
+            if ((value & 16) != 0) {
+                // Face down: counted in the pool, and in material through it, not through the square
+                board.hiddenMask |= 1 << sq;
+                board.hiddenCount++;
+                board.hiddenCounts[code]++;
+                board.material += Evaluator.CODE_SCORES[code];
+                board.key ^= Zobrist.HIDDEN[sq];
+            }
+            board.putPiece(sq, code);
+        }
+        for (int code = 0; code < 14; code++) {
+            board.key ^= Zobrist.pool(code, 0) ^ Zobrist.pool(code, board.hiddenCounts[code]);
+        }
+        board.currentPlayer = colorFromState(state);
+        board.playerColor = colorFromState(state >> 2);
+        board.aiColor = colorFromState(state >> 4);
+        board.firstMove = (state & (1 << 6)) != 0;
+        board.gameStatus = STATUSES[status];
+        board.resetHistory();
+        return board;
+    }
+
+    private static int colorState(Piece.Color color) {
+        return color == null ? 0 : color.ordinal() + 1;
+    }
+
+    private static Piece.Color colorFromState(int state) {
+        int value = state & 3;
+        if (value == 3) throw new IllegalArgumentException("Corrupt board snapshot");
+        return value == 0 ? null : COLORS[value - 1];
+    }
+
+    static int code(int color, int rank) {
+        return color * 7 + rank;
+    }
+
+    static int colorOf(int code) {
+        return code / 7;
+    }
+
+    static int rankOf(int code) {
+        return code % 7;
+    }
+
+    static int square(int row, int col) {
+        return (row << 3) | col;
+    }
+
+    /** All squares orthogonally adjacent to any square in {@code mask}. */
+    static int adjacent(int mask) {
+        return (mask << 8) | (mask >>> 8) | ((mask << 1) & ~FILE_A) | ((mask >>> 1) & ~FILE_H);
+    }
+
+    public Piece getPiece(int row, int col) {
+        if (row < 0 || row >= ROWS || col < 0 || col >= COLS) return null;
+        int sq = square(row, col);
+        int code = squares[sq];
+        if (code == EMPTY) return null;
+        return Piece.of(code, (hiddenMask & (1 << sq)) == 0);
+    }
+
+    int codeAt(int sq) {
+        return squares[sq];
+    }
+
+    int getPieceMask(int code) {
+        return pieceMasks[code];
+    }
+
+    int getColorMask(int color) {
+        return colorMasks[color];
+    }
+
+    int getHiddenMask() {
+        return hiddenMask;
+    }
+
+    int getEmptyMask() {
+        return emptyMask;
+    }
+
+    int getHiddenCount(int code) {
+        return hiddenCounts[code];
+    }
+
+    /**
+     * Red's material minus black's, face-down pieces counted from the hidden pool rather than
+     * their squares. Flips leave it unchanged, so only captures update it.
+     */
+    int getMaterial() {
+        return material;
+    }
+
+    /** Zobrist key of the position as the players see it, including the side to move. */
+    public long getKey() {
+        return currentPlayer == Piece.Color.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
+    }
+
+    public boolean movePiece(int fromRow, int fromCol, int toRow, int toCol) {
+        if (!isValidMove(fromRow, fromCol, toRow, toCol)) {
+            return false;
+        }
+        playMove(square(fromRow, fromCol), square(toRow, toCol));
+        return true;
+    }
+
+    /**
+     * Starts logging every move, flip and capture played from now on, with the current
+     * position as the record's start. Replaces any record already being kept.
+     */
+    public GameRecord startRecording() {
+        record = new GameRecord(this);
+        return record;
+    }
+
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    /** Plays an entry of a {@link GameRecord} exactly as logged, without validation or undo information. */
+    void replay(int entry, boolean aiFlippedFirst) {
+        int from = Move.from(entry);
+        if (!Move.isFlip(entry)) {
+            applyMove(from, Move.to(entry));
+        } else if (aiFlippedFirst) {
+            aiFirstFlip(from);
+        } else {
+            applyFlip(from);
+        }
+    }
+
+    private void playMove(int from, int to) {
+        int captured = squares[to];
+        applyMove(from, to);
+        PerfStats.add(PerfStats.WIN_CHECKS, 1);
+        if (record != null) record.append(GameRecord.moveEntry(from, to, captured), this, false);
+    }
+
+    private void playFlip(int sq) {
+        applyFlip(sq);
+        PerfStats.add(PerfStats.WIN_CHECKS, 1);
+        if (record != null) record.append(GameRecord.flipEntry(sq, squares[sq]), this, false);
+    }
+
+    private void applyMove(int from, int to) {
+        int target = squares[to];
+        if (target != EMPTY) {
+            removePiece(to, target);
+        }
+        int code = squares[from];
+        removePiece(from, code);
+        putPiece(to, code);
+        switchPlayer();
+        recordPosition(target != EMPTY);
+        checkWinCondition();
+    }
+
+    private void putPiece(int sq, int code) {
+        int bit = 1 << sq;
+        if ((hiddenMask & bit) == 0) {
+            key ^= Zobrist.piece(code, sq);
+            material += Evaluator.CODE_SCORES[code];
+        }
+        squares[sq] = (byte) code;
+        pieceMasks[code] |= bit;
+        colorMasks[colorOf(code)] |= bit;
+        pieceCounts[colorOf(code)]++;
+        emptyMask &= ~bit;
+    }
+
+    private void removePiece(int sq, int code) {
+        int bit = 1 << sq;
+        if ((hiddenMask & bit) == 0) {
+            key ^= Zobrist.piece(code, sq);
+            material -= Evaluator.CODE_SCORES[code];
+        }
+        squares[sq] = EMPTY;
+        pieceMasks[code] &= ~bit;
+        colorMasks[colorOf(code)] &= ~bit;
+        pieceCounts[colorOf(code)]--;
+        emptyMask |= bit;
+    }
+
+    public void flipPiece(int row, int col) {
+        if (row < 0 || row >= ROWS || col < 0 || col >= COLS) return;
+        int sq = square(row, col);
+        if ((hiddenMask & (1 << sq)) != 0) {
+            playFlip(sq);
+        }
+    }
+
+    private void applyFlip(int sq) {
+        reveal(sq);
+        if (firstMove) {
+            currentPlayer = colorOf(squares[sq]) == RED ? Piece.Color.RED : Piece.Color.BLACK;
+            playerColor = currentPlayer;
+            aiColor = (playerColor == Piece.Color.RED) ? Piece.Color.BLACK : Piece.Color.RED;
+            firstMove = false;
+        }
+        switchPlayer();
+        recordPosition(true);
+        checkWinCondition();
+    }
+
+    private void reveal(int sq) {
+        int code = squares[sq];
+        hiddenMask &= ~(1 << sq);
+        hiddenCount--;
+        key ^= Zobrist.HIDDEN[sq] ^ Zobrist.piece(code, sq)
+                ^ Zobrist.pool(code, hiddenCounts[code]) ^ Zobrist.pool(code, hiddenCounts[code] - 1);
+        hiddenCounts[code]--;
+    }
+
+    /**
+     * Plays a move from {@link MoveGenerator} and records what {@link #unmakeMove()} needs to
+     * take it back. The move must be legal for the side to move.
+     * <p>
+     * A flip built with {@link Move#flip(int, int)} reveals the named piece instead of the one
+     * actually on the square; only the hidden pool, not the hidden squares, stays accurate after that.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int captured = Move.isFlip(move) ? EMPTY : squares[to];
+        undoMoves[undoCount] = move;
+        undoKeys[undoCount] = key;
+        undoStates[undoCount] = (captured + 1)
+                | (currentPlayer == null ? 0 : currentPlayer.ordinal() + 1) << 4
+                | (firstMove ? 1 << 6 : 0)
+                | gameStatus.ordinal() << 7
+                | quietPlies << 13;
+        undoCount++;
+        if (Move.isFlip(move)) {
+            int revealed = Move.revealedCode(move);
+            int original = squares[from];
+            if (revealed >= 0 && revealed != original) {
+                undoStates[undoCount - 1] |= (original + 1) << 9;
+                removePiece(from, original);
+                putPiece(from, revealed);
+            }
+            applyFlip(from);
+        } else {
+            applyMove(from, to);
+        }
+    }
+
+    /** Takes back the last {@link #makeMove(int)}, restoring turn, first-move state and status. */
+    public void unmakeMove() {
+        undoCount--;
+        int move = undoMoves[undoCount];
+        int state = undoStates[undoCount];
+        int from = Move.from(move);
+        long previousKey = undoKeys[undoCount];
+        if (Move.isFlip(move)) {
+            hiddenMask |= 1 << from;
+            hiddenCount++;
+            hiddenCounts[squares[from]]++;
+            int original = ((state >> 9) & 15) - 1;
+            if (original != EMPTY) {
+                removePiece(from, squares[from]);
+                putPiece(from, original);
+            }
+        } else {
+            int to = Move.to(move);
+            int code = squares[to];
+            removePiece(to, code);
+            putPiece(from, code);
+            int captured = (state & 15) - 1;
+            if (captured != EMPTY) {
+                putPiece(to, captured);
+            }
+        }
+        int player = (state >> 4) & 3;
+        currentPlayer = player == 0 ? null : COLORS[player - 1];
+        if ((state & (1 << 6)) != 0) {
+            firstMove = true;
+            playerColor = null;
+            aiColor = null;
+        }
+        gameStatus = STATUSES[(state >> 7) & 3];
+        quietPlies = state >>> 13;
+        keyFilter[(int) keyHistory[--historyCount] & KEY_FILTER_MASK]--;
+        key = previousKey;
+    }
+
+    /**
+     * Adds the position just reached to the history. Outside a search a capture or flip starts
+     * the history afresh, so each key is dropped at most once and the cost stays constant per ply.
+     * Within a search nothing is dropped, since {@link #unmakeMove()} pops what was pushed.
+     */
+    private void recordPosition(boolean progress) {
+        if (progress && undoCount == 0) {
+            resetHistory();
+            return;
+        }
+        if (historyCount == keyHistory.length) {
+            throw new IllegalStateException("Key history full at search ply " + undoCount);
+        }
+        quietPlies = progress ? 0 : quietPlies + 1;
+        pushKey(getKey());
+        // Only a finished game played on gets this far; the draw already stands
+        if (undoCount == 0 && historyCount > NO_PROGRESS_LIMIT + 1) {
+            dropOldestKey();
+        }
+    }
+
+    private void dropOldestKey() {
+        keyFilter[(int) keyHistory[0] & KEY_FILTER_MASK]--;
+        historyCount--;
+        System.arraycopy(keyHistory, 1, keyHistory, 0, historyCount);
+    }
+
+    /** Forgets earlier positions and restarts the no-progress count from the current one. */
+    private void resetHistory() {
+        for (int i = 0; i < historyCount; i++) {
+            keyFilter[(int) keyHistory[i] & KEY_FILTER_MASK]--;
+        }
+        historyCount = 0;
+        quietPlies = 0;
+        pushKey(getKey());
+    }
+
+    private void pushKey(long positionKey) {
+        keyHistory[historyCount++] = positionKey;
+        keyFilter[(int) positionKey & KEY_FILTER_MASK]++;
+    }
+
+    /** Whether the current position, same side to move, occurred before since the last capture or flip. */
+    boolean isRepetition() {
+        return occurrences(2) >= 2;
+    }
+
+    /** How often the current position occurred since the last capture or flip, counting up to {@code limit}. */
+    private int occurrences(int limit) {
+        long current = keyHistory[historyCount - 1];
+        if (keyFilter[(int) current & KEY_FILTER_MASK] < 2) return 1;
+        int found = 1;
+        int oldest = Math.max(0, historyCount - 1 - quietPlies);
+        // Both sides must move away and back, so a position recurs four plies later at the earliest
+        for (int i = historyCount - 5; i >= oldest && found < limit; i -= 2) {
+            if (keyHistory[i] == current) found++;
+        }
+        return found;
+    }
+
+    /** Plies since the last capture or flip; the game is drawn when this reaches {@link #NO_PROGRESS_LIMIT}. */
+    public int getQuietPlies() {
+        return quietPlies;
+    }
+
+    private void switchPlayer() {
+        currentPlayer = (currentPlayer == Piece.Color.RED) ? Piece.Color.BLACK : Piece.Color.RED;
+    }
+
+    public Piece.Color getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public Piece.Color getAiColor() {
+        return aiColor;
+    }
+
+    public GameStatus getGameStatus() {
+        return gameStatus;
+    }
+
+    /**
+     * Runs after every move and flip, including inside AI searches, so it only reads counts
+     * and masks that are kept up to date as pieces move: while anything is face down both
+     * sides can flip, and otherwise a side with a piece next to an empty square can step.
+     * Captures only need generating when neither holds. Draws come from the no-progress
+     * count and the key history, which answer in constant time almost always.
+     */
+    void checkWinCondition() {
+        winChecks++;
+        if (hiddenCount == 0) {
+            if (!hasMoves(RED)) {
+                gameStatus = GameStatus.BLACK_WIN;
+            } else if (!hasMoves(BLACK)) {
+                gameStatus = GameStatus.RED_WIN;
+            }
+        }
+        if (gameStatus == GameStatus.ONGOING
+                && (quietPlies >= NO_PROGRESS_LIMIT || occurrences(REPETITION_LIMIT) >= REPETITION_LIMIT)) {
+            gameStatus = GameStatus.DRAW;
+        }
+    }
+
+    long getWinChecks() {
+        return winChecks;
+    }
+
+    private boolean hasMoves(int color) {
+        if (pieceCounts[color] == 0) return false;
+        // Mobile pieces: every piece, the cannon included, can step onto an adjacent empty square.
+        if ((colorMasks[color] & adjacent(emptyMask)) != 0) return true;
+        return MoveGenerator.generateCaptures(this, color, winCheckMoves, 0) > 0;
+    }
+
+    public boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol) {
+        PerfStats.add(PerfStats.LEGALITY_CHECKS, 1);
+        if (toRow < 0 || toRow >= ROWS || toCol < 0 || toCol >= COLS) return false;
+        if (fromRow < 0 || fromRow >= ROWS || fromCol < 0 || fromCol >= COLS) return false;
+        int from = square(fromRow, fromCol);
+        int code = squares[from];
+        if (code == EMPTY || (hiddenMask & (1 << from)) != 0) return false;
+        if (currentPlayer == null || colorOf(code) != currentPlayer.ordinal()) return false;
+        return canMove(from, square(toRow, toCol));
+    }
+
+    /** Move legality for the face-up piece on {@code from}, regardless of whose turn it is. */
+    private boolean canMove(int from, int to) {
+        int code = squares[from];
+        int color = colorOf(code);
+        int toBit = 1 << to;
+        boolean toEmpty = (emptyMask & toBit) != 0;
+
+        // Targets must be empty or a face-up enemy piece
+        if (!toEmpty && ((hiddenMask | colorMasks[color]) & toBit) != 0) return false;
+
+        if (rankOf(code) == CANNON) {
+            // Cannon: slides along a clear line, or captures by jumping exactly one piece.
+            if ((AttackTables.LINES[from] & toBit) == 0) return false;
+            int screens = Integer.bitCount(AttackTables.BETWEEN[from * SQUARES + to] & ~emptyMask);
+            return toEmpty ? screens == 0 : screens == 1;
+        }
+
+        if ((AttackTables.NEIGHBORS[from] & toBit) == 0) return false;
+        return toEmpty || AttackTables.canCapture(rankOf(code), rankOf(squares[to]));
+    }
+
+    public void forceAiFirstMove() {
+        if (firstMove) {
+            int sq = random.nextInt(SQUARES);
+            aiFirstFlip(sq);
+            if (record != null) record.append(GameRecord.flipEntry(sq, squares[sq]), this, true);
+        }
+    }
+
+    private void aiFirstFlip(int sq) {
+        reveal(sq);
+        currentPlayer = colorOf(squares[sq]) == RED ? Piece.Color.RED : Piece.Color.BLACK;
+        aiColor = currentPlayer;
+        playerColor = (aiColor == Piece.Color.RED) ? Piece.Color.BLACK : Piece.Color.RED;
+        firstMove = false;
+        switchPlayer();
+        recordPosition(true);
+    }
+
+    public void makeAiMove() {
+        makeAiMove(AI_TIME_BUDGET_MS);
+    }
+
+    public void makeAiMove(long timeBudgetMillis) {
+        if (currentPlayer == null) return;
+        if (engine == null) {
+            engine = new SearchEngine();
+        }
+        long start = System.nanoTime();
+        int move = engine.search(this, timeBudgetMillis);
+        PerfStats.record(PerfStats.AI_MOVE_TIME, System.nanoTime() - start);
+        PerfStats.add(PerfStats.AI_MOVES, 1);
+        applyAiMove(move);
+    }
+
+    /** Plays a move chosen by a {@link SearchEngine}, typically one that searched a copy of this board. */
+    public void applyAiMove(int move) {
+        if (move == Move.NONE || gameStatus != GameStatus.ONGOING) return;
+        if (Move.isFlip(move)) {
+            int sq = Move.from(move);
+            int interchangeable = SearchEngine.interchangeableFlips(this);
+            if ((interchangeable & (1 << sq)) != 0) {
+                // The engine searched one square for the whole group; any of them is as good.
+                sq = randomSquare(interchangeable);
+            }
+            playFlip(sq);
+        } else {
+            playMove(Move.from(move), Move.to(move));
+        }
+    }
+
+    private int randomSquare(int mask) {
+        for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chinesedarkchess;
+
+/**
+ * AI strength levels, each a budget for the search. The lower levels are capped by depth and
+ * nodes, so they play the same on every device and finish in a few milliseconds instead of
+ * spending their time; only the upper levels use every core and ponder on the human's turn.
+ */
+public enum Difficulty {
+    BEGINNER(300, 2, 2000, 1, false),
+    EASY(800, 4, 40000, 1, false),
+    NORMAL(Board.AI_TIME_BUDGET_MS, Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, true),
+    HARD(4000, Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, true);
+
+    /** Time for a typical move; {@link TimeManager} gives tactical positions more and forced ones less. */
+    public final long timeMillis;
+    public final int maxDepth;
+    public final long maxNodes;
+    public final int threads;
+    /** Whether to search during the human's turn, at the cost of keeping the CPU busy. */
+    public final boolean ponder;
+
+    Difficulty(long timeMillis, int maxDepth, long maxNodes, int threads, boolean ponder) {
+        this.timeMillis = timeMillis;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.threads = threads;
+        this.ponder = ponder;
+    }
+
+    /** The level named {@code name}, or {@link #NORMAL} for null or an unknown name. */
+    public static Difficulty fromName(String name) {
+        for (Difficulty difficulty : values()) {
+            if (difficulty.name().equals(name)) return difficulty;
+        }
+        return NORMAL;
+    }
+}
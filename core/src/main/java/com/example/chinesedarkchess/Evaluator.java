@@ -0,0 +1,106 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Static evaluation for the AI, from red's point of view.
+ * <p>
+ * Material is kept by {@link Board} itself as pieces are captured: face-up pieces count at
+ * their value and face-down ones through the hidden pool, so a flip leaves it unchanged and
+ * reading it is one field load. Only material is incremental. The positional terms are
+ * worked out afresh on every call from the occupancy masks: mobility, and a penalty for
+ * face-up pieces the opponent attacks, smaller if they are defended. Neither loops over
+ * squares, so a full evaluation is a few dozen bit operations.
+ */
+final class Evaluator {
+    // Indexed by rank. The cannon captures anything by jumping, so it is worth more than its rank.
+    static final int[] PIECE_VALUES = {100, 50, 25, 15, 10, 10, 45};
+    /** Piece values by code, positive for red and negative for black. */
+    static final int[] CODE_SCORES = new int[14];
+
+    // Weights from Arena matches of up to 400 games at depth 3 (see its eval: option): moving one of
+    // them a step either way measured within noise, while dropping mobility cost about 47 Elo
+    // Per empty square that a side's face-up pieces can step onto
+    static final int MOBILITY = 2;
+    // Sixteenths of its value an attacked piece costs when undefended, and when defended
+    static final int HANGING = 6;
+    static final int DEFENDED = 2;
+    // The weights in use; only tuning matches change them
+    private static int mobilityWeight = MOBILITY;
+    private static int hangingWeight = HANGING;
+    private static int defendedWeight = DEFENDED;
+
+    static {
+        for (int rank = 0; rank < 7; rank++) {
+            CODE_SCORES[Board.code(Board.RED, rank)] = PIECE_VALUES[rank];
+            CODE_SCORES[Board.code(Board.BLACK, rank)] = -PIECE_VALUES[rank];
+        }
+    }
+
+    private Evaluator() {
+    }
+
+    /**
+     * Replaces the positional weights for every evaluation in this process, so that tuning
+     * matches can play different weights against each other. Not safe while any search runs.
+     */
+    static void setWeights(int mobility, int hanging, int defended) {
+        mobilityWeight = mobility;
+        hangingWeight = hanging;
+        defendedWeight = defended;
+    }
+
+    static int evaluate(Board board) {
+        int faceUp = ~board.getEmptyMask() & ~board.getHiddenMask();
+        if (faceUp == 0) return board.getMaterial();
+        int occupied = ~board.getEmptyMask();
+        int redCannonHits = cannonHits(board, Board.RED, faceUp, occupied);
+        int blackCannonHits = cannonHits(board, Board.BLACK, faceUp, occupied);
+        return board.getMaterial()
+                + mobilityWeight * (mobility(board, Board.RED, faceUp) - mobility(board, Board.BLACK, faceUp))
+                - threats(board, Board.RED, faceUp, blackCannonHits, redCannonHits)
+                + threats(board, Board.BLACK, faceUp, redCannonHits, blackCannonHits);
+    }
+
+    private static int mobility(Board board, int color, int faceUp) {
+        return Integer.bitCount(Board.adjacent(board.getColorMask(color) & faceUp) & board.getEmptyMask());
+    }
+
+    /** Occupied squares that {@code color}'s face-up cannons could jump onto. */
+    private static int cannonHits(Board board, int color, int faceUp, int occupied) {
+        int hits = 0;
+        for (int cannons = board.getPieceMask(Board.code(color, Board.CANNON)) & faceUp; cannons != 0; cannons &= cannons - 1) {
+            int sq = Integer.numberOfTrailingZeros(cannons);
+            for (int dir = 0; dir < 4; dir++) {
+                int to = AttackTables.cannonTarget(dir, sq, occupied);
+                if (to >= 0) hits |= 1 << to;
+            }
+        }
+        return hits;
+    }
+
+    /** What {@code color} stands to lose from attacks on its face-up pieces. */
+    private static int threats(Board board, int color, int faceUp, int enemyCannonHits, int ownCannonHits) {
+        int own = board.getColorMask(color) & faceUp;
+        int attacked = enemyCannonHits & own;
+        int enemy = 1 - color;
+        for (int rank = 0; rank < Board.CANNON; rank++) {
+            int attackers = board.getPieceMask(Board.code(enemy, rank)) & faceUp;
+            if (attackers == 0) continue;
+            int victims = 0;
+            for (int ranks = AttackTables.VICTIM_RANKS[rank]; ranks != 0; ranks &= ranks - 1) {
+                victims |= board.getPieceMask(Board.code(color, Integer.numberOfTrailingZeros(ranks)));
+            }
+            attacked |= Board.adjacent(attackers) & victims & faceUp;
+        }
+        if (attacked == 0) return 0;
+
+        // Any neighbour could step in to recapture; rank limits are ignored for speed
+        int defended = (Board.adjacent(own & ~board.getPieceMask(Board.code(color, Board.CANNON))) | ownCannonHits) & own;
+        int loss = 0;
+        for (; attacked != 0; attacked &= attacked - 1) {
+            int sq = Integer.numberOfTrailingZeros(attacked);
+            int value = PIECE_VALUES[Board.rankOf(board.codeAt(sq))];
+            loss += value * ((defended & (1 << sq)) != 0 ? defendedWeight : hangingWeight);
+        }
+        return loss >> 4;
+    }
+}
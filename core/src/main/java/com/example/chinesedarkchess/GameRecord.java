@@ -0,0 +1,157 @@
+package com.example.chinesedarkchess;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Append-only log of a game: the starting position, deal included, and one 16-bit entry per
+ * ply. An entry is the {@link Move} encoding cut to 16 bits, with bits 12-15 holding the
+ * revealed piece code + 1 for a flip or the captured code + 1 for a capture, so each entry
+ * also says what was seen or taken.
+ * <p>
+ * Every {@link #CHECKPOINT_INTERVAL} plies the record keeps a {@link Board#toBytes()} snapshot,
+ * so {@link #positionAt} replays at most that many plies, plus the moves since the last capture
+ * or flip that draws by repetition depend on, whatever ply it is asked for.
+ * Entries and checkpoints live in arrays that double when full; appending, replaying and
+ * streaming with {@link #writeNew} allocate nothing otherwise.
+ * <p>
+ * The stream format is a version byte, a flags byte, the starting snapshot and then each
+ * entry as a big-endian short. Checkpoints are not stored; {@link #read} rebuilds them.
+ */
+public class GameRecord {
+    public static final int CHECKPOINT_INTERVAL = 16;
+
+    private static final int VERSION = 1;
+    // Header flag: the AI made the opening flip, which decides who plays which color
+    private static final int AI_MOVED_FIRST = 1;
+    private static final int HEADER_BYTES = 2 + Board.SNAPSHOT_BYTES;
+    private static final int CAPTURED_SHIFT = 12;
+
+    private final byte[] start;
+    private int flags;
+    private short[] entries = new short[256];
+    private int size;
+    // Snapshot after ply i * CHECKPOINT_INTERVAL at offset i * SNAPSHOT_BYTES; the first is the start
+    private byte[] checkpoints = new byte[16 * Board.SNAPSHOT_BYTES];
+    private int checkpointCount;
+    private int written = -1;
+    private final byte[] writeBuffer = new byte[512];
+
+    /** A record of the game from {@code board}'s current position on. */
+    GameRecord(Board board) {
+        start = board.toBytes();
+        System.arraycopy(start, 0, checkpoints, 0, start.length);
+        checkpointCount = 1;
+    }
+
+    static int moveEntry(int from, int to, int captured) {
+        return captured < 0 ? Move.quiet(from, to) : Move.capture(from, to) | (captured + 1) << CAPTURED_SHIFT;
+    }
+
+    static int flipEntry(int square, int revealed) {
+        return Move.flip(square, revealed);
+    }
+
+    /** The piece an entry revealed or captured, or -1 for a quiet move. */
+    public static int pieceOf(int entry) {
+        return ((entry >>> CAPTURED_SHIFT) & 15) - 1;
+    }
+
+    /** Logs the next ply; {@code after} is the board once it has been played. */
+    void append(int entry, Board after, boolean aiFlippedFirst) {
+        if (size == 0 && aiFlippedFirst) flags |= AI_MOVED_FIRST;
+        if (size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+        entries[size++] = (short) entry;
+        if (size % CHECKPOINT_INTERVAL == 0) {
+            int offset = checkpointCount * Board.SNAPSHOT_BYTES;
+            if (offset == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, offset * 2);
+            after.toBytes(checkpoints, offset);
+            checkpointCount++;
+        }
+    }
+
+    /** Plies logged so far. */
+    public int size() {
+        return size;
+    }
+
+    /** The entry for ply {@code ply}, counting from 0. */
+    public int entry(int ply) {
+        return entries[ply] & 0xFFFF;
+    }
+
+    /** A new board at the position after {@code ply} plies, 0 being the start. */
+    public Board positionAt(int ply) {
+        if (ply < 0 || ply > size) throw new IndexOutOfBoundsException("Ply " + ply + " of " + size);
+        // Start where the board's key history starts, after the last capture or flip
+        int first = ply;
+        while (first > 0 && pieceOf(entries[first - 1] & 0xFFFF) < 0 && ply - first < Board.NO_PROGRESS_LIMIT) {
+            first--;
+        }
+        int checkpoint = first / CHECKPOINT_INTERVAL;
+        Board board = Board.fromBytes(checkpoints, checkpoint * Board.SNAPSHOT_BYTES);
+        for (int i = checkpoint * CHECKPOINT_INTERVAL; i < ply; i++) {
+            board.replay(entries[i] & 0xFFFF, i == 0 && (flags & AI_MOVED_FIRST) != 0);
+        }
+        return board;
+    }
+
+    /** Writes the whole record. */
+    public void writeTo(OutputStream out) throws IOException {
+        written = -1;
+        writeNew(out);
+    }
+
+    /**
+     * Writes what was appended since the last call, with the header first time round, so a
+     * game can be streamed to disk as it is played.
+     */
+    public void writeNew(OutputStream out) throws IOException {
+        if (written < 0) {
+            out.write(VERSION);
+            out.write(flags);
+            out.write(start);
+            written = 0;
+        }
+        while (written < size) {
+            int n = 0;
+            for (; written < size && n < writeBuffer.length; written++) {
+                writeBuffer[n++] = (byte) (entries[written] >> 8);
+                writeBuffer[n++] = (byte) entries[written];
+            }
+            out.write(writeBuffer, 0, n);
+        }
+    }
+
+    /** Reads a record written by {@link #writeTo}, replaying it to rebuild the checkpoints. */
+    public static GameRecord read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[HEADER_BYTES];
+        data.readFully(header);
+        if (header[0] != VERSION) throw new IOException("Not a game record");
+        byte[] snapshot = Arrays.copyOfRange(header, 2, HEADER_BYTES);
+        Board board;
+        try {
+            board = Board.fromBytes(snapshot);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt game record", e);
+        }
+        GameRecord record = new GameRecord(board);
+        boolean aiFlippedFirst = (header[1] & AI_MOVED_FIRST) != 0;
+        while (true) {
+            int entry;
+            try {
+                entry = data.readUnsignedShort();
+            } catch (EOFException e) {
+                break;
+            }
+            board.replay(entry, record.size == 0 && aiFlippedFirst);
+            record.append(entry, board, aiFlippedFirst);
+        }
+        return record;
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.chinesedarkchess;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Information-set Monte Carlo tree search, an alternative to {@link SearchEngine}.
+ * <p>
+ * Face-down pieces are determinized lazily: whenever a flip is played, in the tree or in a
+ * playout, the revealed piece is drawn from the hidden pool in proportion to what is left.
+ * In the tree a flip leads to a chance node with one child per piece code, so statistics
+ * for different outcomes never mix.
+ * <p>
+ * Each thread grows its own tree (root parallelism) in a fixed arena of primitive arrays,
+ * allocated once and reused by every search. A search stops when its time budget or playout
+ * budget runs out or every arena is full; the move with the most visits summed over all trees
+ * is played.
+ */
+public class MctsEngine {
+    public static final int DEFAULT_NODES = 1 << 18;
+
+    private final Tree[] trees;
+    private final ExecutorService helpers;
+    private final Future<?>[] pending;
+    private volatile boolean stopRequested;
+    private long elapsedMillis;
+
+    /** {@code nodeBudget} is split evenly between the threads' arenas. */
+    public MctsEngine(int threads, int nodeBudget) {
+        trees = new Tree[Math.max(1, threads)];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new Tree(nodeBudget / trees.length, 0x9E3779B9 * (i + 1));
+        }
+        helpers = trees.length > 1 ? Executors.newFixedThreadPool(trees.length - 1) : null;
+        pending = new Future<?>[trees.length];
+    }
+
+    /** Returns the best move for the side to move, or {@link Move#NONE} if it has none. */
+    public int search(Board board, long timeBudgetMillis) {
+        return search(board, timeBudgetMillis, Long.MAX_VALUE);
+    }
+
+    /**
+     * As {@link #search(Board, long)}, but also stops after about {@code maxPlayouts} playouts
+     * in all, shared evenly between the threads, so the result does not depend on the machine.
+     */
+    public int search(Board board, long timeBudgetMillis, long maxPlayouts) {
+        long start = System.currentTimeMillis();
+        final long treePlayouts = Math.max(1, maxPlayouts / trees.length);
+        final long deadline = start + timeBudgetMillis;
+        stopRequested = false;
+        for (int i = 1; i < trees.length; i++) {
+            final Tree tree = trees[i];
+            final Board copy = new Board(board);
+            pending[i] = helpers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    tree.search(copy, deadline, treePlayouts);
+                }
+            });
+        }
+        trees[0].search(new Board(board), deadline, treePlayouts);
+        // Helpers run to the same deadline; stop them now in case the main tree filled up first
+        stopRequested = true;
+        for (int i = 1; i < trees.length; i++) {
+            try {
+                pending[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            pending[i] = null;
+        }
+        elapsedMillis = System.currentTimeMillis() - start;
+        return bestMove();
+    }
+
+    private int bestMove() {
+        // All trees expand the root the same way, so child i is the same move in each
+        Tree main = trees[0];
+        int count = main.childCount[0];
+        int best = Move.NONE;
+        long bestVisits = -1;
+        for (int i = 0; i < count; i++) {
+            long visits = 0;
+            for (Tree tree : trees) {
+                if (tree.childCount[0] == count) visits += tree.visits[tree.firstChild[0] + i];
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                best = main.move[main.firstChild[0] + i];
+            }
+        }
+        return best;
+    }
+
+    /** Ends the current search early with the best move found so far. Safe to call from any thread. */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    public long getPlayouts() {
+        long playouts = 0;
+        for (Tree tree : trees) {
+            playouts += tree.playouts;
+        }
+        return playouts;
+    }
+
+    public long getPlayoutsPerSecond() {
+        return getPlayouts() * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    public void shutdown() {
+        requestStop();
+        if (helpers != null) {
+            helpers.shutdown();
+        }
+    }
+
+    /** One thread's tree. Node 0 is the root; each node's children are contiguous. */
+    private final class Tree {
+        private static final double EXPLORATION = 1.0;
+        // Playouts stop here and score the evaluation instead
+        private static final int PLAYOUT_PLIES = 64;
+        private static final int CHANCE = 1;
+
+        private final int capacity;
+        // The move into a decision node, the flip into a chance node, or the code an outcome revealed
+        final int[] move;
+        final int[] firstChild;
+        final int[] childCount;
+        final int[] visits;
+        // Summed results from the point of view of the color that moved into the node
+        private final float[] reward;
+        private final byte[] mover;
+        private final byte[] kind;
+        private int size;
+
+        private final int[] moves = new int[Move.MAX_MOVES];
+        private final int[] path = new int[Board.MAX_PLY];
+        private int random;
+        private Board board;
+        long playouts;
+
+        Tree(int capacity, int seed) {
+            this.capacity = Math.max(Move.MAX_MOVES + 1, capacity);
+            move = new int[this.capacity];
+            firstChild = new int[this.capacity];
+            childCount = new int[this.capacity];
+            visits = new int[this.capacity];
+            reward = new float[this.capacity];
+            mover = new byte[this.capacity];
+            kind = new byte[this.capacity];
+            random = seed == 0 ? 1 : seed;
+        }
+
+        void search(Board board, long deadline, long maxPlayouts) {
+            this.board = board;
+            size = 1;
+            childCount[0] = 0;
+            visits[0] = 0;
+            kind[0] = 0;
+            playouts = 0;
+            if (board.getGameStatus() == Board.GameStatus.ONGOING && board.getCurrentPlayer() != null) {
+                expand(0);
+                while (!stopRequested && size < capacity && playouts < maxPlayouts) {
+                    iterate();
+                    if ((playouts & 63) == 0 && System.currentTimeMillis() >= deadline) break;
+                }
+            }
+            this.board = null;
+        }
+
+        private void iterate() {
+            int node = 0;
+            int length = 0;
+            int made = 0;
+            while (board.getGameStatus() == Board.GameStatus.ONGOING && made < Board.MAX_PLY - PLAYOUT_PLIES - 1) {
+                if (childCount[node] == 0 && !expand(node)) {
+                    if (kind[node] == CHANCE) {
+                        board.makeMove(Move.flip(Move.from(move[node]), samplePool()));
+                        made++;
+                    }
+                    break;
+                }
+                int child;
+                if (kind[node] == CHANCE) {
+                    int code = samplePool();
+                    child = firstChild[node] + code;
+                    board.makeMove(Move.flip(Move.from(move[node]), code));
+                    made++;
+                } else {
+                    child = select(node);
+                    if (kind[child] != CHANCE) {
+                        board.makeMove(move[child]);
+                        made++;
+                    }
+                }
+                path[length++] = child;
+                node = child;
+                if (kind[node] != CHANCE && visits[node] == 0) break;
+            }
+
+            float redResult = playout(made);
+            playouts++;
+            visits[0]++;
+            for (int i = 0; i < length; i++) {
+                int n = path[i];
+                visits[n]++;
+                reward[n] += mover[n] == Board.RED ? redResult : 1 - redResult;
+            }
+            for (; made > 0; made--) {
+                board.unmakeMove();
+            }
+        }
+
+        /** Allocates {@code node}'s children; false if the arena has no room for them. */
+        private boolean expand(int node) {
+            int count;
+            int color = board.getCurrentPlayer().ordinal();
+            if (kind[node] == CHANCE) {
+                // One outcome per piece code; codes absent from the pool are never sampled
+                count = 14;
+                if (size + count > capacity) return false;
+                for (int i = 0; i < count; i++) {
+                    init(size + i, i, mover[node], 0);
+                }
+            } else {
+                count = generateMoves(color);
+                if (count == 0 || size + count > capacity) return false;
+                for (int i = 0; i < count; i++) {
+                    init(size + i, moves[i], color, Move.isFlip(moves[i]) ? CHANCE : 0);
+                }
+            }
+            firstChild[node] = size;
+            childCount[node] = count;
+            size += count;
+            return true;
+        }
+
+        private void init(int node, int nodeMove, int nodeMover, int nodeKind) {
+            move[node] = nodeMove;
+            mover[node] = (byte) nodeMover;
+            kind[node] = (byte) nodeKind;
+            childCount[node] = 0;
+            visits[node] = 0;
+            reward[node] = 0;
+        }
+
+        /** Captures, one flip per interchangeable group, and quiet moves, as SearchEngine sees them. */
+        private int generateMoves(int color) {
+            int count = MoveGenerator.generateCaptures(board, color, moves, 0);
+            int flipsStart = count;
+            count = MoveGenerator.generateFlips(board, moves, count);
+            int interchangeable = SearchEngine.interchangeableFlips(board);
+            boolean representativeKept = false;
+            int kept = flipsStart;
+            for (int i = flipsStart; i < count; i++) {
+                if ((interchangeable & (1 << Move.from(moves[i]))) != 0) {
+                    if (representativeKept) continue;
+                    representativeKept = true;
+                }
+                moves[kept++] = moves[i];
+            }
+            return MoveGenerator.generateQuiets(board, color, moves, kept);
+        }
+
+        /** UCB1 over the children; unvisited children first. */
+        private int select(int node) {
+            int first = firstChild[node];
+            int end = first + childCount[node];
+            double logVisits = Math.log(Math.max(1, visits[node]));
+            int best = first;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < end; child++) {
+                if (visits[child] == 0) return child;
+                double score = reward[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Plays on with random moves, captures preferred, and returns red's chance of winning:
+         * 1 or 0 if the game ends, else a logistic of the evaluation.
+         */
+        private float playout(int made) {
+            int plies = 0;
+            while (board.getGameStatus() == Board.GameStatus.ONGOING && plies < PLAYOUT_PLIES) {
+                int color = board.getCurrentPlayer().ordinal();
+                int count = MoveGenerator.generateCaptures(board, color, moves, 0);
+                if (count == 0 || nextInt(4) == 0) {
+                    count = MoveGenerator.generateAll(board, color, moves, 0);
+                }
+                if (count == 0) break;
+                int chosen = moves[nextInt(count)];
+                board.makeMove(Move.isFlip(chosen) ? Move.flip(Move.from(chosen), samplePool()) : chosen);
+                plies++;
+            }
+            float result;
+            Board.GameStatus status = board.getGameStatus();
+            if (status == Board.GameStatus.RED_WIN) {
+                result = 1;
+            } else if (status == Board.GameStatus.BLACK_WIN) {
+                result = 0;
+            } else if (status == Board.GameStatus.DRAW) {
+                result = 0.5f;
+            } else {
+                result = (float) (1 / (1 + Math.exp(-Evaluator.evaluate(board) / 100.0)));
+            }
+            for (; plies > 0; plies--) {
+                board.unmakeMove();
+            }
+            return result;
+        }
+
+        /** A piece code drawn from the hidden pool, weighted by how many of each are left. */
+        private int samplePool() {
+            int total = 0;
+            for (int code = 0; code < 14; code++) {
+                total += board.getHiddenCount(code);
+            }
+            int pick = nextInt(total);
+            for (int code = 0; code < 14; code++) {
+                pick -= board.getHiddenCount(code);
+                if (pick < 0) return code;
+            }
+            return 13;
+        }
+
+        // Xorshift; java.util.Random would add a CAS per call
+        private int nextInt(int bound) {
+            random ^= random << 13;
+            random ^= random >>> 17;
+            random ^= random << 5;
+            return (int) (((random & 0xFFFFFFFFL) * bound) >>> 32);
+        }
+    }
+}
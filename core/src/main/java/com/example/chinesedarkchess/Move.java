@@ -0,0 +1,56 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Moves packed into a single int so move lists can live in plain int[] buffers.
+ * Bits 0-4 hold the from square, bits 5-9 the to square (equal to from for flips).
+ * A flip may also name the piece it reveals (code + 1 in bits 12-15), which lets a search
+ * play out each possible outcome of the flip.
+ */
+public final class Move {
+    public static final int NONE = 0;
+    public static final int FLIP = 1 << 10;
+    public static final int CAPTURE = 1 << 11;
+
+    /** Upper bound on the moves one side can have in a position. */
+    public static final int MAX_MOVES = 128;
+
+    private Move() {
+    }
+
+    public static int quiet(int from, int to) {
+        return from | (to << 5);
+    }
+
+    public static int capture(int from, int to) {
+        return from | (to << 5) | CAPTURE;
+    }
+
+    public static int flip(int square) {
+        return square | (square << 5) | FLIP;
+    }
+
+    public static int flip(int square, int code) {
+        return flip(square) | ((code + 1) << 12);
+    }
+
+    public static int from(int move) {
+        return move & 31;
+    }
+
+    public static int to(int move) {
+        return (move >>> 5) & 31;
+    }
+
+    /** The piece code a flip was told to reveal, or -1 to reveal whatever is there. */
+    public static int revealedCode(int move) {
+        return ((move >>> 12) & 15) - 1;
+    }
+
+    public static boolean isFlip(int move) {
+        return (move & FLIP) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Writes pseudo-legal moves for one side into a caller-owned buffer.
+ * Each method appends starting at {@code count} and returns the new count; nothing is allocated.
+ */
+public final class MoveGenerator {
+    private MoveGenerator() {
+    }
+
+    public static int generateAll(Board board, int color, int[] moves, int count) {
+        count = generateCaptures(board, color, moves, count);
+        count = generateFlips(board, moves, count);
+        return generateQuiets(board, color, moves, count);
+    }
+
+    public static int generateCaptures(Board board, int color, int[] moves, int count) {
+        int hidden = board.getHiddenMask();
+        int enemy = board.getColorMask(1 - color) & ~hidden;
+        if (enemy == 0) return count;
+        int occupied = ~board.getEmptyMask();
+        for (int pieces = board.getColorMask(color) & ~hidden; pieces != 0; pieces &= pieces - 1) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            int rank = Board.rankOf(board.codeAt(from));
+            if (rank == Board.CANNON) {
+                for (int dir = 0; dir < 4; dir++) {
+                    int to = AttackTables.cannonTarget(dir, from, occupied);
+                    if (to >= 0 && (enemy & (1 << to)) != 0) {
+                        moves[count++] = Move.capture(from, to);
+                    }
+                }
+            } else {
+                int victims = 0;
+                for (int ranks = AttackTables.VICTIM_RANKS[rank]; ranks != 0; ranks &= ranks - 1) {
+                    victims |= board.getPieceMask(Board.code(1 - color, Integer.numberOfTrailingZeros(ranks)));
+                }
+                for (int targets = AttackTables.NEIGHBORS[from] & enemy & victims; targets != 0; targets &= targets - 1) {
+                    moves[count++] = Move.capture(from, Integer.numberOfTrailingZeros(targets));
+                }
+            }
+        }
+        return count;
+    }
+
+    public static int generateQuiets(Board board, int color, int[] moves, int count) {
+        int empty = board.getEmptyMask();
+        int occupied = ~empty;
+        for (int pieces = board.getColorMask(color) & ~board.getHiddenMask(); pieces != 0; pieces &= pieces - 1) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            if (Board.rankOf(board.codeAt(from)) == Board.CANNON) {
+                for (int dir = 0; dir < 4; dir++) {
+                    for (int targets = AttackTables.slides(dir, from, occupied); targets != 0; targets &= targets - 1) {
+                        moves[count++] = Move.quiet(from, Integer.numberOfTrailingZeros(targets));
+                    }
+                }
+            } else {
+                for (int targets = AttackTables.NEIGHBORS[from] & empty; targets != 0; targets &= targets - 1) {
+                    moves[count++] = Move.quiet(from, Integer.numberOfTrailingZeros(targets));
+                }
+            }
+        }
+        return count;
+    }
+
+    public static int generateFlips(Board board, int[] moves, int count) {
+        for (int hidden = board.getHiddenMask(); hidden != 0; hidden &= hidden - 1) {
+            moves[count++] = Move.flip(Integer.numberOfTrailingZeros(hidden));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.chinesedarkchess;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazy SMP: every thread runs its own {@link SearchEngine} on its own copy of the board, and
+ * they cooperate only through one shared lock-free {@link TranspositionTable}. The calling
+ * thread runs the main search and controls the time; helpers run until it finishes.
+ */
+public class ParallelSearch {
+    private final TranspositionTable table;
+    private final SearchEngine[] engines;
+    private final ExecutorService helpers;
+    private final Future<?>[] pending;
+    // Counts requestStop calls, so a stop that lands before a search starts is not lost
+    private final AtomicInteger stops = new AtomicInteger();
+    private long elapsedMillis;
+    // Threads used by the last search; idle engines still hold results from older ones
+    private int active;
+
+    public ParallelSearch(int threads, int tableMegabytes) {
+        table = new TranspositionTable(tableMegabytes);
+        engines = new SearchEngine[Math.max(1, threads)];
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = new SearchEngine(table, i);
+        }
+        helpers = engines.length > 1 ? Executors.newFixedThreadPool(engines.length - 1) : null;
+        pending = new Future<?>[engines.length];
+    }
+
+    public static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    public int search(Board board, long timeBudgetMillis) {
+        return search(board, timeBudgetMillis, Integer.MAX_VALUE);
+    }
+
+    /** Returns the move of whichever thread completed the deepest iteration, preferring the main one. */
+    public int search(Board board, long timeBudgetMillis, int maxDepth) {
+        return search(board, timeBudgetMillis, maxDepth, Long.MAX_VALUE, engines.length);
+    }
+
+    /**
+     * As {@link #search(Board, long, int)} on at most {@code threads} threads, the rest staying
+     * idle. {@code maxNodes} caps the main thread's nodes; helpers stop when it does.
+     */
+    public int search(Board board, long timeBudgetMillis, int maxDepth, long maxNodes, int threads) {
+        return search(board, timeBudgetMillis, maxDepth, maxNodes, threads, stops.get());
+    }
+
+    /**
+     * As {@link #search(Board, long, int, long, int)}, but ends at once if {@link #requestStop()}
+     * has been called since {@link #getStopGeneration()} returned {@code stopGeneration}, even
+     * if that was before this search started.
+     */
+    public int search(Board board, final long timeBudgetMillis, final int maxDepth, long maxNodes, int threads,
+                      int stopGeneration) {
+        long start = System.currentTimeMillis();
+        table.newSearch();
+        active = Math.max(1, Math.min(threads, engines.length));
+        for (int i = 1; i < active; i++) {
+            final SearchEngine helper = engines[i];
+            final Board copy = new Board(board);
+            arm(helper, stopGeneration);
+            pending[i] = helpers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    helper.runSearch(copy, timeBudgetMillis, maxDepth, Long.MAX_VALUE);
+                }
+            });
+        }
+
+        arm(engines[0], stopGeneration);
+        int bestMove = engines[0].runSearch(new Board(board), timeBudgetMillis, maxDepth, maxNodes);
+        int bestDepth = engines[0].getDepth();
+
+        for (int i = 1; i < active; i++) {
+            engines[i].requestStop();
+        }
+        for (int i = 1; i < active; i++) {
+            try {
+                pending[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            pending[i] = null;
+            if (engines[i].getDepth() > bestDepth && engines[i].getBestMove() != Move.NONE) {
+                bestDepth = engines[i].getDepth();
+                bestMove = engines[i].getBestMove();
+            }
+        }
+        elapsedMillis = System.currentTimeMillis() - start;
+        return bestMove;
+    }
+
+    /**
+     * Clears {@code engine}'s stop flag, then stops it again if a stop was requested since
+     * {@code stopGeneration}. requestStop counts before it stops the engines, so a stop lands
+     * either before the check here or after the flag was cleared, never in between.
+     */
+    private void arm(SearchEngine engine, int stopGeneration) {
+        engine.clearStop();
+        if (stops.get() != stopGeneration) {
+            engine.requestStop();
+        }
+    }
+
+    public void setTablebase(Tablebase tablebase) {
+        for (SearchEngine engine : engines) {
+            engine.setTablebase(tablebase);
+        }
+    }
+
+    /** Ends the current search early with the best move found so far. Safe to call from any thread. */
+    public void requestStop() {
+        stops.incrementAndGet();
+        for (SearchEngine engine : engines) {
+            engine.requestStop();
+        }
+    }
+
+    /** Changes with every {@link #requestStop()}; see {@link #search(Board, long, int, long, int, int)}. */
+    public int getStopGeneration() {
+        return stops.get();
+    }
+
+    /** Threads the last search ran on. */
+    public int getThreads() {
+        return active;
+    }
+
+    public long getNodes() {
+        long nodes = 0;
+        for (int i = 0; i < active; i++) {
+            nodes += engines[i].getNodes();
+        }
+        return nodes;
+    }
+
+    public int getDepth() {
+        int depth = 0;
+        for (int i = 0; i < active; i++) {
+            depth = Math.max(depth, engines[i].getDepth());
+        }
+        return depth;
+    }
+
+    public long getNodesPerSecond() {
+        return getNodes() * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    public void shutdown() {
+        requestStop();
+        if (helpers != null) {
+            helpers.shutdown();
+        }
+    }
+}
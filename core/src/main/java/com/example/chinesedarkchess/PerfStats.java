@@ -0,0 +1,136 @@
+package com.example.chinesedarkchess;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide performance counters and timing histograms, kept in arrays allocated once.
+ * Recording is an atomic add or two and never allocates, so it stays on in release builds.
+ * Hot paths inside the search count on their own board or engine and add the total here
+ * once per search, so search threads never contend on these arrays.
+ * <p>
+ * Histograms have power-of-two buckets in microseconds: bucket {@code i} counts times below
+ * {@code 2^i} us and at least {@code 2^(i-1)} us, so percentiles are accurate to a factor of two.
+ */
+public final class PerfStats {
+    // Counters
+    public static final int AI_MOVES = 0;
+    public static final int POSITIONS_SEARCHED = 1;
+    public static final int LEGALITY_CHECKS = 2;
+    public static final int WIN_CHECKS = 3;
+    private static final String[] COUNTER_NAMES = {"ai_moves", "positions_searched", "legality_checks", "win_checks"};
+
+    // Histograms
+    public static final int AI_MOVE_TIME = 0;
+    public static final int FRAME_TIME = 1;
+    public static final int DECODE_TIME = 2;
+    private static final String[] HISTOGRAM_NAMES = {"ai_move_time", "frame_time", "decode_time"};
+
+    private static final int BUCKETS = 40;
+
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTER_NAMES.length);
+    private static final AtomicLongArray buckets = new AtomicLongArray(HISTOGRAM_NAMES.length * BUCKETS);
+    private static final AtomicLongArray totals = new AtomicLongArray(HISTOGRAM_NAMES.length);
+    private static final AtomicLongArray maximums = new AtomicLongArray(HISTOGRAM_NAMES.length);
+
+    private PerfStats() {
+    }
+
+    public static void add(int counter, long amount) {
+        counters.addAndGet(counter, amount);
+    }
+
+    public static long count(int counter) {
+        return counters.get(counter);
+    }
+
+    /** Adds one timing, measured with {@link System#nanoTime()}, to a histogram. */
+    public static void record(int histogram, long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(histogram * BUCKETS + bucket);
+        totals.addAndGet(histogram, micros);
+        long max;
+        while (micros > (max = maximums.get(histogram)) && !maximums.compareAndSet(histogram, max, micros)) {
+            // Retry; another thread raised the maximum
+        }
+    }
+
+    public static long samples(int histogram) {
+        long samples = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            samples += buckets.get(histogram * BUCKETS + i);
+        }
+        return samples;
+    }
+
+    /** An upper bound on the {@code fraction} quantile, in microseconds; 0 with no samples. */
+    public static long percentileMicros(int histogram, double fraction) {
+        long target = (long) Math.ceil(samples(histogram) * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(histogram * BUCKETS + i);
+            if (seen >= target && seen > 0) return i == 0 ? 0 : Math.min(1L << i, maximums.get(histogram));
+        }
+        return 0;
+    }
+
+    public static long meanMicros(int histogram) {
+        long samples = samples(histogram);
+        return samples == 0 ? 0 : totals.get(histogram) / samples;
+    }
+
+    public static long maxMicros(int histogram) {
+        return maximums.get(histogram);
+    }
+
+    public static void reset() {
+        for (int i = 0; i < counters.length(); i++) counters.set(i, 0);
+        for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+        for (int i = 0; i < totals.length(); i++) {
+            totals.set(i, 0);
+            maximums.set(i, 0);
+        }
+    }
+
+    /**
+     * Writes every counter and histogram as {@code name value} lines, raw buckets included,
+     * so dumps from two builds can be diffed or loaded into a spreadsheet.
+     */
+    public static void dump(PrintWriter out, String label) {
+        out.println("# " + label);
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            out.println(COUNTER_NAMES[i] + " " + counters.get(i));
+        }
+        for (int h = 0; h < HISTOGRAM_NAMES.length; h++) {
+            String name = HISTOGRAM_NAMES[h];
+            out.println(name + ".samples " + samples(h));
+            out.println(name + ".mean_us " + meanMicros(h));
+            out.println(name + ".p50_us " + percentileMicros(h, 0.5));
+            out.println(name + ".p95_us " + percentileMicros(h, 0.95));
+            out.println(name + ".max_us " + maxMicros(h));
+            StringBuilder line = new StringBuilder(name).append(".buckets");
+            for (int i = 0; i < BUCKETS; i++) {
+                line.append(' ').append(buckets.get(h * BUCKETS + i));
+            }
+            out.println(line);
+        }
+        out.flush();
+    }
+
+    /** A one-line summary of a histogram in milliseconds, for on-screen display. */
+    public static String summary(int histogram) {
+        return String.format(Locale.US, "%s n=%d p50<%.1f p95<%.1f max %.1f ms", HISTOGRAM_NAMES[histogram],
+                samples(histogram), percentileMicros(histogram, 0.5) / 1000.0,
+                percentileMicros(histogram, 0.95) / 1000.0, maxMicros(histogram) / 1000.0);
+    }
+
+    public static String counterName(int counter) {
+        return COUNTER_NAMES[counter];
+    }
+
+    public static int counterCount() {
+        return COUNTER_NAMES.length;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.chinesedarkchess;
+
+public class Piece {
+    public enum Rank {
+        GENERAL, ADVISOR, ELEPHANT, CHARIOT, HORSE, SOLDIER, CANNON
+    }
+
+    public enum Color {
+        RED, BLACK
+    }
+
+    // One shared instance per (code, face) pair, handed out by Board.getPiece.
+    private static final Piece[] FACE_DOWN = new Piece[14];
+    private static final Piece[] FACE_UP = new Piece[14];
+
+    static {
+        for (Color color : Color.values()) {
+            for (Rank rank : Rank.values()) {
+                int code = color.ordinal() * 7 + rank.ordinal();
+                FACE_DOWN[code] = new Piece(rank, color, false);
+                FACE_UP[code] = new Piece(rank, color, true);
+            }
+        }
+    }
+
+    private final Rank rank;
+    private final Color color;
+    private final boolean faceUp;
+
+    public Piece(Rank rank, Color color) {
+        this(rank, color, false);
+    }
+
+    Piece(Rank rank, Color color, boolean faceUp) {
+        this.rank = rank;
+        this.color = color;
+        this.faceUp = faceUp;
+    }
+
+    static Piece of(int code, boolean faceUp) {
+        return faceUp ? FACE_UP[code] : FACE_DOWN[code];
+    }
+
+    public Rank getRank() {
+        return rank;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public boolean isFaceUp() {
+        return faceUp;
+    }
+}
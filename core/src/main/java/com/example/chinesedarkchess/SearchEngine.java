@@ -0,0 +1,637 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Negamax alpha-beta search with iterative deepening under a wall-clock budget, optionally
+ * capped by depth and by nodes searched.
+ * The engine searches the given Board in place with makeMove/unmakeMove and leaves it unchanged.
+ * Results are kept in a transposition table across searches, keyed by {@link Board#getKey()}.
+ */
+public class SearchEngine {
+    static final int INFINITY = 32000;
+    static final int WIN = 30000;
+    private static final int MAX_DEPTH = 64;
+    // Outcome scores are clamped to this inside chance nodes; a tight bound is what lets Star1 prune.
+    private static final int CHANCE_BOUND = 1000;
+    // Scores within this of WIN or TABLEBASE_WIN are forced results whose distance is adjusted by
+    // ply in the table
+    private static final int MATE_RANGE = 512;
+    // A win the endgame tables promise, less the plies to reach their material. Below every
+    // win the search sees played out, so the winning side still heads for the quickest one.
+    private static final int TABLEBASE_WIN = WIN - 2 * MATE_RANGE;
+    // Exchange results are scaled past the tie-break in capture scores, so a capture's score is
+    // negative exactly when it loses material
+    private static final int EXCHANGE_SCALE = 2048;
+
+    private final int[][] moves = new int[Board.MAX_PLY][Move.MAX_MOVES];
+    private final int[][] scores = new int[Board.MAX_PLY][Move.MAX_MOVES];
+    private final int[][] outcomes = new int[Board.MAX_PLY][14];
+    private final int[][] outcomeBounds = new int[Board.MAX_PLY][14];
+    // Losing captures, held back while generateMoves adds flips and quiet moves before them
+    private final int[] deferred = new int[Move.MAX_MOVES];
+
+    private final TranspositionTable table;
+    private final int helperIndex;
+    private Tablebase tablebase;
+
+    private Board board;
+    private long deadline;
+    private long nodeLimit;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private long nodes;
+    private int completedDepth;
+    private int bestMove;
+    private long elapsedMillis;
+    private int rootScore;
+    // Pieces on the board, face down or not, when the search started
+    private int rootPieces;
+
+    /** Receives {@link #analyze} results; called on the searching thread. */
+    public interface AnalysisListener {
+        /**
+         * The best {@code count} root moves after iteration {@code depth}, best first, with
+         * scores from the point of view of the side to move. The arrays are reused by the next call.
+         */
+        void onAnalysis(int depth, int[] moves, int[] scores, int count);
+    }
+
+    public SearchEngine() {
+        this(new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES), 0);
+    }
+
+    /**
+     * @param helperIndex 0 for a standalone or main search thread; Lazy SMP helpers use 1 and up
+     *                    so they start at different depths and root moves and spread out the work.
+     */
+    public SearchEngine(TranspositionTable table, int helperIndex) {
+        this.table = table;
+        this.helperIndex = helperIndex;
+    }
+
+    /** Endgame tables to play fully revealed endgames from exactly; null to always search. */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /** Returns the best move for the side to move, or {@link Move#NONE} if it has none. */
+    public int search(Board board, long timeBudgetMillis) {
+        return search(board, timeBudgetMillis, MAX_DEPTH);
+    }
+
+    /** As {@link #search(Board, long)}, but stops after iteration {@code maxDepth}. */
+    public int search(Board board, long timeBudgetMillis, int maxDepth) {
+        return search(board, timeBudgetMillis, maxDepth, Long.MAX_VALUE);
+    }
+
+    /**
+     * As {@link #search(Board, long, int)}, but also stops once about {@code maxNodes} positions
+     * have been searched. A node budget plays the same on every device and ends short searches
+     * as soon as they are done rather than when the clock runs out.
+     */
+    public int search(Board board, long timeBudgetMillis, int maxDepth, long maxNodes) {
+        stopRequested = false;
+        if (helperIndex == 0) {
+            table.newSearch();
+        }
+        return runSearch(board, timeBudgetMillis, maxDepth, maxNodes);
+    }
+
+    /** The search proper; unlike {@link #search}, honours a stop requested before it started. */
+    int runSearch(Board board, long timeBudgetMillis, int maxDepth, long maxNodes) {
+        this.board = board;
+        long start = System.currentTimeMillis();
+        deadline = start + timeBudgetMillis;
+        nodeLimit = maxNodes;
+        stopped = false;
+        nodes = 0;
+        completedDepth = 0;
+        long winChecks = board.getWinChecks();
+
+        int[] rootMoves = moves[0];
+        rootPieces = Integer.bitCount(~board.getEmptyMask());
+        int count = keepTablebaseResult(generateMoves(0));
+        if (helperIndex > 0 && count > 1) {
+            rotate(rootMoves, count, helperIndex % count);
+        }
+        bestMove = count > 0 ? rootMoves[0] : Move.NONE;
+        if (count > 1) {
+            for (int depth = 1 + (helperIndex & 1); depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+                int move = searchRoot(depth, count);
+                if (stopped) break;
+                bestMove = move;
+                completedDepth = depth;
+                table.store(board.getKey(), bestMove, toTable(rootScore, 0), depth, TranspositionTable.EXACT);
+                // The next iteration costs several times this one; don't start what can't finish.
+                // Helpers keep going until the main thread stops them.
+                if (helperIndex == 0 && (System.currentTimeMillis() - start > timeBudgetMillis / 2
+                        || nodes > maxNodes / 2)) break;
+            }
+        }
+        elapsedMillis = System.currentTimeMillis() - start;
+        PerfStats.add(PerfStats.POSITIONS_SEARCHED, nodes);
+        PerfStats.add(PerfStats.WIN_CHECKS, board.getWinChecks() - winChecks);
+        this.board = null;
+        return bestMove;
+    }
+
+    /**
+     * Multi-PV analysis: iterative deepening like {@link #search}, but the best {@code lines}
+     * root moves each get an exact score, and every completed iteration is reported to
+     * {@code listener}. Moves are searched with the window above the score of the
+     * {@code lines}-th best so far, so the rest only prove they are worse.
+     * <p>
+     * Runs until {@code maxDepth}, the time budget or {@link #requestStop()}. Unlike
+     * {@link #search} it honours a stop requested before it started, so a caller cancelling
+     * from another thread calls {@link #clearStop()} before deciding to analyze.
+     */
+    public void analyze(Board board, int lines, long timeBudgetMillis, int maxDepth, AnalysisListener listener) {
+        if (helperIndex == 0) {
+            table.newSearch();
+        }
+        this.board = board;
+        long start = System.currentTimeMillis();
+        deadline = start + timeBudgetMillis;
+        nodeLimit = Long.MAX_VALUE;
+        stopped = false;
+        nodes = 0;
+        completedDepth = 0;
+        long winChecks = board.getWinChecks();
+
+        rootPieces = Integer.bitCount(~board.getEmptyMask());
+        int[] rootMoves = moves[0];
+        int[] rootScores = scores[0];
+        int count = board.getGameStatus() == Board.GameStatus.ONGOING ? generateMoves(0) : 0;
+        int lineCount = Math.min(lines, count);
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH) && lineCount > 0; depth++) {
+            int floor = -INFINITY;
+            for (int i = 0; i < count; i++) {
+                rootScores[i] = -searchMove(rootMoves[i], depth, 0, -INFINITY, -floor);
+                if (stopped) break;
+                if (i + 1 >= lineCount) floor = nthBest(rootScores, i + 1, lineCount);
+            }
+            if (stopped) break;
+            // Stable, so ties keep last iteration's order
+            for (int i = 1; i < count; i++) {
+                int move = rootMoves[i];
+                int score = rootScores[i];
+                int j = i - 1;
+                while (j >= 0 && rootScores[j] < score) {
+                    rootMoves[j + 1] = rootMoves[j];
+                    rootScores[j + 1] = rootScores[j];
+                    j--;
+                }
+                rootMoves[j + 1] = move;
+                rootScores[j + 1] = score;
+            }
+            bestMove = rootMoves[0];
+            completedDepth = depth;
+            table.store(board.getKey(), bestMove, toTable(rootScores[0], 0), depth, TranspositionTable.EXACT);
+            listener.onAnalysis(depth, rootMoves, rootScores, lineCount);
+        }
+        elapsedMillis = System.currentTimeMillis() - start;
+        PerfStats.add(PerfStats.POSITIONS_SEARCHED, nodes);
+        PerfStats.add(PerfStats.WIN_CHECKS, board.getWinChecks() - winChecks);
+        this.board = null;
+    }
+
+    /** The {@code n}-th highest of the first {@code count} scores. */
+    private static int nthBest(int[] scores, int count, int n) {
+        int bound = INFINITY + 1;
+        int result = -INFINITY;
+        for (int found = 0; found < n; ) {
+            // Next distinct value below the last, counting how many share it
+            result = -INFINITY - 1;
+            for (int i = 0; i < count; i++) {
+                if (scores[i] < bound && scores[i] > result) result = scores[i];
+            }
+            for (int i = 0; i < count; i++) {
+                if (scores[i] == result) found++;
+            }
+            bound = result;
+        }
+        return result;
+    }
+
+    /**
+     * Asks a running {@link #search} to return now with the best move of its last completed
+     * iteration. Safe to call from any thread.
+     */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    /** Withdraws a {@link #requestStop()} that no search has acted on yet. */
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    /** Forgets everything learned in earlier searches, so the next one depends only on its board. */
+    void clearTable() {
+        table.clear();
+    }
+
+    /** The move the last search returned, or is about to return if it is still running. */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getDepth() {
+        return completedDepth;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    private int searchRoot(int depth, int count) {
+        int[] rootMoves = moves[0];
+        int alpha = -INFINITY;
+        int bestIndex = 0;
+        for (int i = 0; i < count; i++) {
+            int score = -searchMove(rootMoves[i], depth, 0, -INFINITY, -alpha);
+            if (stopped) break;
+            if (score > alpha) {
+                alpha = score;
+                bestIndex = i;
+            }
+        }
+        // Keep the best move first so the next iteration searches it first.
+        int best = rootMoves[bestIndex];
+        System.arraycopy(rootMoves, 0, rootMoves, 1, bestIndex);
+        rootMoves[0] = best;
+        rootScore = alpha;
+        return best;
+    }
+
+    /** Scores {@code move} from the point of view of the side that replies to it. */
+    private int searchMove(int move, int depth, int ply, int alpha, int beta) {
+        if (Move.isFlip(move)) {
+            return -chanceNode(Move.from(move), depth, ply, -beta, -alpha);
+        }
+        board.makeMove(move);
+        int score = negamax(depth - 1, ply + 1, alpha, beta);
+        board.unmakeMove();
+        return score;
+    }
+
+    /**
+     * Expected score of flipping {@code square} for the side that flips, with each outcome
+     * weighted by how many of that piece are still hidden.
+     * <p>
+     * Star2 pruning: a probe phase first bounds every outcome from above by searching only the
+     * opponent's first reply with a null window at alpha, and cuts off if the bounds already fail
+     * low. Otherwise each outcome is searched (Star1) with the window that could still move the
+     * expectation across alpha or beta, given the bounds of the outcomes not yet searched.
+     * Outcome scores are clamped to +/-CHANCE_BOUND, so a forced win behind a flip counts as a
+     * large material edge rather than a mate.
+     */
+    private int chanceNode(int square, int depth, int ply, int alpha, int beta) {
+        int[] codes = outcomes[ply];
+        int[] upper = outcomeBounds[ply];
+        int count = 0;
+        int total = 0;
+        for (int code = 0; code < 14; code++) {
+            int n = board.getHiddenCount(code);
+            if (n == 0) continue;
+            total += n;
+            // Most likely outcomes first, so the unsearched probability mass shrinks fastest
+            int j = count++;
+            while (j > 0 && board.getHiddenCount(codes[j - 1]) < n) {
+                codes[j] = codes[j - 1];
+                j--;
+            }
+            codes[j] = code;
+        }
+
+        // Flips below the root cost an extra ply: every one of them multiplies the tree by its outcomes.
+        int childDepth = ply > 0 ? depth - 2 : depth - 1;
+        int upperSum = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(Move.flip(square, codes[i]));
+            upper[i] = probe(childDepth, ply + 1, alpha);
+            board.unmakeMove();
+            if (stopped) return 0;
+            upperSum += board.getHiddenCount(codes[i]) * upper[i];
+        }
+        if (upperSum <= alpha * total) return upperSum / total;
+
+        int remaining = total;
+        int remainingUpper = upperSum;
+        int sum = 0;
+        for (int i = 0; i < count; i++) {
+            int n = board.getHiddenCount(codes[i]);
+            remaining -= n;
+            remainingUpper -= n * upper[i];
+            int lo = Math.floorDiv(alpha * total - sum - remainingUpper, n);
+            int hi = -Math.floorDiv(-(beta * total - sum + CHANCE_BOUND * remaining), n);
+            if (lo >= upper[i]) return (sum + n * upper[i] + remainingUpper) / total;
+            if (hi <= -CHANCE_BOUND) return (sum - n * CHANCE_BOUND - CHANCE_BOUND * remaining) / total;
+
+            board.makeMove(Move.flip(square, codes[i]));
+            int score = -negamax(childDepth, ply + 1, -Math.min(hi, INFINITY), -Math.max(lo, -INFINITY));
+            board.unmakeMove();
+            if (stopped) return 0;
+            score = Math.max(-CHANCE_BOUND, Math.min(score, upper[i]));
+
+            if (score <= lo) return (sum + n * score + remainingUpper) / total;
+            if (score >= hi) return (sum + n * score - CHANCE_BOUND * remaining) / total;
+            sum += n * score;
+        }
+        return sum / total;
+    }
+
+    /**
+     * An upper bound on one flip outcome for the side that flipped, taken just after the flip.
+     * Any single reply bounds the opponent's choice, so the first one is searched with a null
+     * window at {@code alpha}; at the horizon the opponent's stand-pat score bounds it instead.
+     */
+    private int probe(int depth, int ply, int alpha) {
+        if (board.getGameStatus() != Board.GameStatus.ONGOING) {
+            return Math.max(-CHANCE_BOUND, Math.min(-terminalScore(ply), CHANCE_BOUND));
+        }
+        if (depth <= 0) {
+            return Math.max(-CHANCE_BOUND, Math.min(-evaluate(), CHANCE_BOUND));
+        }
+        int count = generateMoves(ply);
+        if (count == 0) return CHANCE_BOUND;
+        long entry = table.probe(board.getKey());
+        if (entry != 0) {
+            promote(ply, count, TranspositionTable.move(entry));
+        }
+        int score = searchMove(moves[ply][0], depth, ply, alpha, alpha + 1);
+        return score <= alpha ? Math.max(-CHANCE_BOUND, score) : CHANCE_BOUND;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if ((++nodes & 1023) == 0
+                && (stopRequested || nodes >= nodeLimit || System.currentTimeMillis() >= deadline)) {
+            stopped = true;
+        }
+        if (stopped) return 0;
+        if (board.getGameStatus() != Board.GameStatus.ONGOING) {
+            return terminalScore(ply);
+        }
+        // Whoever repeated could repeat again, so the cycle is worth a draw; no need to search it
+        if (ply > 0 && board.isRepetition()) return 0;
+        // Once a capture reaches material the tables cover, the result is known. Before that the
+        // search has to find the way to it: the tables do not say which winning move makes progress.
+        // Entries assume the no-progress count the capture just restarted, so only then are they exact.
+        if (tablebase != null && board.getQuietPlies() == 0
+                && Integer.bitCount(~board.getEmptyMask()) < rootPieces && Tablebase.covers(board)) {
+            int result = tablebase.probe(board);
+            if (result != Tablebase.UNKNOWN) return tablebaseScore(result, ply);
+        }
+        if (depth <= 0 || ply >= Board.MAX_PLY - 1) {
+            return quiesce(ply, alpha, beta);
+        }
+
+        long key = board.getKey();
+        long entry = table.probe(key);
+        int tableMove = Move.NONE;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int count = generateMoves(ply);
+        promote(ply, count, tableMove);
+        int[] plyMoves = moves[ply];
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int score = -searchMove(plyMoves[i], depth, ply, -beta, -alpha);
+            if (stopped) return 0;
+            if (score > best) {
+                best = score;
+                bestMove = plyMoves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) break;
+                }
+            }
+        }
+        if (count == 0) return evaluate();
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    private static void rotate(int[] list, int count, int by) {
+        for (int k = 0; k < by; k++) {
+            int first = list[0];
+            System.arraycopy(list, 1, list, 0, count - 1);
+            list[count - 1] = first;
+        }
+    }
+
+    /** Moves the transposition table's move, if it was generated, to the front of the list. */
+    private void promote(int ply, int count, int move) {
+        if (move == Move.NONE) return;
+        int[] plyMoves = moves[ply];
+        for (int i = 0; i < count; i++) {
+            if (plyMoves[i] == move) {
+                System.arraycopy(plyMoves, 0, plyMoves, 1, i);
+                plyMoves[0] = move;
+                return;
+            }
+        }
+    }
+
+    // Win scores are stored relative to the node, not the root, so they stay valid when the
+    // same position is reached at a different ply.
+    private static int toTable(int score, int ply) {
+        if (score > TABLEBASE_WIN - MATE_RANGE) return score + ply;
+        if (score < -TABLEBASE_WIN + MATE_RANGE) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > TABLEBASE_WIN - MATE_RANGE) return score - ply;
+        if (score < -TABLEBASE_WIN + MATE_RANGE) return score + ply;
+        return score;
+    }
+
+    /** Resolves pending captures so the static evaluation is not taken mid-exchange. */
+    private int quiesce(int ply, int alpha, int beta) {
+        int standPat = evaluate();
+        if (standPat >= beta || ply >= Board.MAX_PLY - 1) return standPat;
+        if (standPat > alpha) alpha = standPat;
+
+        int color = board.getCurrentPlayer().ordinal();
+        int count = MoveGenerator.generateCaptures(board, color, moves[ply], 0);
+        // Captures that lose the exchange can't raise a score the stand pat already holds
+        int winning = orderCaptures(ply, count);
+        int[] plyMoves = moves[ply];
+        for (int i = 0; i < winning; i++) {
+            board.makeMove(plyMoves[i]);
+            nodes++;
+            int score = board.getGameStatus() != Board.GameStatus.ONGOING
+                    ? terminalScore(ply + 1) : quiesce(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            score = -score;
+            if (score >= beta) return score;
+            if (score > alpha) alpha = score;
+        }
+        return alpha;
+    }
+
+    /** Captures that win or trade material, best first, then flips, quiet moves and losing captures. */
+    private int generateMoves(int ply) {
+        Piece.Color player = board.getCurrentPlayer();
+        if (player == null) {
+            return MoveGenerator.generateFlips(board, moves[ply], 0);
+        }
+        int[] plyMoves = moves[ply];
+        int captures = MoveGenerator.generateCaptures(board, player.ordinal(), plyMoves, 0);
+        int count = orderCaptures(ply, captures);
+        int losing = captures - count;
+        System.arraycopy(plyMoves, count, deferred, 0, losing);
+        int flipsStart = count;
+        count = MoveGenerator.generateFlips(board, plyMoves, count);
+        // Flips of interchangeable squares lead to nearly the same expectation; search one of them.
+        int interchangeable = interchangeableFlips(board);
+        boolean representativeKept = false;
+        int kept = flipsStart;
+        for (int i = flipsStart; i < count; i++) {
+            if ((interchangeable & (1 << Move.from(plyMoves[i]))) != 0) {
+                if (representativeKept) continue;
+                representativeKept = true;
+            }
+            plyMoves[kept++] = plyMoves[i];
+        }
+        count = kept;
+        count = MoveGenerator.generateQuiets(board, player.ordinal(), plyMoves, count);
+        System.arraycopy(deferred, 0, plyMoves, count, losing);
+        return count + losing;
+    }
+
+    /**
+     * Face-down squares that no face-up piece touches, either as a neighbour or along a
+     * cannon's row or column, and that have no empty neighbour to step into. Flipping any of
+     * them reveals the same unknown piece into much the same surroundings, so they are treated
+     * as one move.
+     * <p>
+     * This is a lossy approximation, not an exact equivalence: a cannon turned up on one of
+     * these squares may still have a screen and a target along its own row or column that
+     * another square's cannon would not, and the squares differ in what the revealed piece
+     * can reach later. Searching one representative trades that for a much smaller tree.
+     */
+    static int interchangeableFlips(Board board) {
+        int hidden = board.getHiddenMask();
+        int revealed = ~board.getEmptyMask() & ~hidden;
+        // A piece that can move at once is not in the same surroundings as one boxed in
+        int exposed = Board.adjacent(revealed) | Board.adjacent(board.getEmptyMask());
+        int cannons = (board.getPieceMask(Board.code(Board.RED, Board.CANNON))
+                | board.getPieceMask(Board.code(Board.BLACK, Board.CANNON))) & revealed;
+        for (; cannons != 0; cannons &= cannons - 1) {
+            int sq = Integer.numberOfTrailingZeros(cannons);
+            exposed |= (0xFF << (sq & ~7)) | (0x01010101 << (sq & 7));
+        }
+        return hidden & ~exposed;
+    }
+
+    /**
+     * Sorts captures by the material they win, ties going to the most valuable victim and then
+     * the least valuable attacker. Returns how many do not lose material; those come first.
+     */
+    private int orderCaptures(int ply, int count) {
+        int[] plyMoves = moves[ply];
+        int[] plyScores = scores[ply];
+        int winning = 0;
+        for (int i = 0; i < count; i++) {
+            int victim = Evaluator.PIECE_VALUES[Board.rankOf(board.codeAt(Move.to(plyMoves[i])))];
+            int attacker = Evaluator.PIECE_VALUES[Board.rankOf(board.codeAt(Move.from(plyMoves[i])))];
+            // Taking a piece worth at least the attacker wins at least the difference; only
+            // captures that could lose need the exchange played out
+            int exchange = victim >= attacker ? victim - attacker : StaticExchange.evaluate(board, plyMoves[i]);
+            plyScores[i] = exchange * EXCHANGE_SCALE + victim * 16 - attacker;
+            if (plyScores[i] >= 0) winning++;
+        }
+        // Insertion sort; capture lists are short
+        for (int i = 1; i < count; i++) {
+            int move = plyMoves[i];
+            int score = plyScores[i];
+            int j = i - 1;
+            while (j >= 0 && plyScores[j] < score) {
+                plyMoves[j + 1] = plyMoves[j];
+                plyScores[j + 1] = plyScores[j];
+                j--;
+            }
+            plyMoves[j + 1] = move;
+            plyScores[j + 1] = score;
+        }
+        return winning;
+    }
+
+    /** A tablebase result, reached {@code ply} plies from the root, as a search score. */
+    private static int tablebaseScore(int result, int ply) {
+        if (result == Tablebase.WIN) return TABLEBASE_WIN - ply;
+        if (result == Tablebase.LOSS) return -(TABLEBASE_WIN - ply);
+        return 0;
+    }
+
+    /**
+     * Drops the root moves that would give away what the tables say the position is worth:
+     * with a win in hand only winning moves stay, else drawing ones. Returns how many are left,
+     * still in order. The search then picks among them, finding the way to actually win.
+     * Plies already spent without a capture can only turn table wins into draws, for either
+     * side, so no move dropped here is better than the ones kept.
+     */
+    private int keepTablebaseResult(int count) {
+        if (tablebase == null || count <= 1 || !Tablebase.covers(board)) return count;
+        int[] rootMoves = moves[0];
+        int[] results = scores[0];
+        int mover = board.getCurrentPlayer().ordinal();
+        int best = Tablebase.LOSS;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(rootMoves[i]);
+            Board.GameStatus status = board.getGameStatus();
+            int result;
+            if (status == Board.GameStatus.ONGOING) {
+                result = tablebase.probe(board);
+                if (result != Tablebase.UNKNOWN) result = -result;
+            } else if (status == Board.GameStatus.DRAW) {
+                result = Tablebase.DRAW;
+            } else {
+                result = (status == Board.GameStatus.RED_WIN) == (mover == Board.RED) ? Tablebase.WIN : Tablebase.LOSS;
+            }
+            board.unmakeMove();
+            if (result == Tablebase.UNKNOWN) return count;
+            results[i] = result;
+            best = Math.max(best, result);
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (results[i] == best) rootMoves[kept++] = rootMoves[i];
+        }
+        return kept;
+    }
+
+    private int terminalScore(int ply) {
+        Board.GameStatus status = board.getGameStatus();
+        if (status == Board.GameStatus.DRAW) return 0;
+        int winner = status == Board.GameStatus.RED_WIN ? Board.RED : Board.BLACK;
+        return winner == board.getCurrentPlayer().ordinal() ? WIN - ply : -(WIN - ply);
+    }
+
+    /** {@link Evaluator#evaluate} from the point of view of the side to move. */
+    private int evaluate() {
+        int score = Evaluator.evaluate(board);
+        return board.getCurrentPlayer() == Piece.Color.RED ? score : -score;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Static exchange evaluation: what a capture wins once every capture and recapture on its
+ * square has been played out, each side free to stop whenever going on would cost it. Only
+ * the board's masks are read, with the pieces that have joined the exchange cleared from an
+ * occupancy mask passed down the recursion, so a piece stepping onto the square can open a
+ * cannon's line or stop being another cannon's screen along the way. Nothing is allocated,
+ * and the board is not touched, so any number of threads may call it at once.
+ */
+final class StaticExchange {
+    // Every rank, least valuable first: the order attackers are tried in
+    private static final int[] CHEAPEST_FIRST = new int[7];
+
+    static {
+        for (int rank = 0; rank < 7; rank++) {
+            int i = rank;
+            while (i > 0 && Evaluator.PIECE_VALUES[CHEAPEST_FIRST[i - 1]] > Evaluator.PIECE_VALUES[rank]) {
+                CHEAPEST_FIRST[i] = CHEAPEST_FIRST[i - 1];
+                i--;
+            }
+            CHEAPEST_FIRST[i] = rank;
+        }
+    }
+
+    private StaticExchange() {
+    }
+
+    /**
+     * The material {@code capture} wins for the side playing it, in {@link Evaluator#PIECE_VALUES}
+     * units; negative if the piece making it is lost for less.
+     */
+    static int evaluate(Board board, int capture) {
+        int from = Move.from(capture);
+        int to = Move.to(capture);
+        int onSquare = board.codeAt(from);
+        int enemy = 1 - Board.colorOf(onSquare);
+        int occupied = ~board.getEmptyMask() & ~(1 << from);
+        int hidden = board.getHiddenMask();
+        int prize = Evaluator.PIECE_VALUES[Board.rankOf(board.codeAt(to))];
+        // Most captured squares have no enemy piece beside them or in line with an enemy cannon
+        int enemies = board.getColorMask(enemy) & occupied & ~hidden;
+        if ((enemies & AttackTables.NEIGHBORS[to]) == 0
+                && (enemies & board.getPieceMask(Board.code(enemy, Board.CANNON)) & AttackTables.LINES[to]) == 0) {
+            return prize;
+        }
+        return prize - bestRecapture(board, enemy, to, onSquare, occupied, hidden);
+    }
+
+    /**
+     * What {@code color} gains by capturing {@code onSquare} on {@code to} and playing the exchange
+     * out, or 0 if it does better to leave it. Every attacker is tried, not only the cheapest:
+     * which ranks may capture which does not follow their values, so a cheap attacker can be
+     * the one the other side gets to recapture.
+     */
+    private static int bestRecapture(Board board, int color, int to, int onSquare, int occupied, int hidden) {
+        int victimRank = Board.rankOf(onSquare);
+        int prize = Evaluator.PIECE_VALUES[victimRank];
+        int best = 0;
+        for (int rank : CHEAPEST_FIRST) {
+            int pieces = board.getPieceMask(Board.code(color, rank)) & occupied & ~hidden;
+            if (rank == Board.CANNON) {
+                pieces &= AttackTables.LINES[to];
+            } else if (AttackTables.canCapture(rank, victimRank)) {
+                pieces &= AttackTables.NEIGHBORS[to];
+            } else {
+                continue;
+            }
+            for (; pieces != 0; pieces &= pieces - 1) {
+                int sq = Integer.numberOfTrailingZeros(pieces);
+                // Cannons capture any rank, but only by jumping exactly one piece, face down or not
+                if (rank == Board.CANNON
+                        && Integer.bitCount(AttackTables.BETWEEN[sq * Board.SQUARES + to] & occupied) != 1) continue;
+                int gain = prize - bestRecapture(board, 1 - color, to, Board.code(color, rank),
+                        occupied & ~(1 << sq), hidden);
+                if (gain > best) {
+                    best = gain;
+                    // The other side can always let the piece be, so nothing beats an unanswered capture
+                    if (best == prize) return best;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.chinesedarkchess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Exact win/draw/loss results for fully revealed endgames with up to {@link #MAX_PIECES} pieces,
+ * read from tables built offline by {@code TablebaseGenerator}. Tables are memory-mapped on
+ * first use, so a probe is one byte read outside the Java heap.
+ * <p>
+ * There is one table per material signature, named by its pieces in code order: letters
+ * {@code GAERHSC} for general, advisor, elephant, chariot, horse, soldier and cannon, upper case
+ * for red and lower case for black, so {@code "GRc.wdl"} holds red general and chariot against
+ * a black cannon. Swapping colors and the side to move gives the same game, so only the
+ * signature that sorts first of each such pair has a table.
+ * <p>
+ * Positions are numbered with no gaps. The first piece with no twin in the signature is mirrored
+ * into the top-left quarter of the board, which the rules cannot tell from the other three, and
+ * its 8 squares are the leading digit; if every piece has a twin nothing is mirrored. Every run
+ * of equal pieces after that is one combination of the squares still free. With the side to
+ * move in front, a table with a leading piece has
+ * {@code 2 * 8 * C(31, n2) * C(31 - n2, n3) * ...} entries, each two bits from the side to move's
+ * point of view, four to a byte with the first in the low bits.
+ */
+public class Tablebase {
+    public static final int MAX_PIECES = 4;
+    /** What {@link #probe} returns for positions no loaded table covers. */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    static final String EXTENSION = ".wdl";
+
+    // Two-bit entries as stored
+    static final int STORED_DRAW = 0;
+    static final int STORED_WIN = 1;
+    static final int STORED_LOSS = 2;
+
+    private static final String LETTERS = "GAERHSC";
+    // Signatures are base-15 numbers with one digit (code + 1) per piece
+    private static final int SIGNATURES = 15 * 15 * 15 * 15;
+    private static final ByteBuffer MISSING = ByteBuffer.allocate(0);
+    private static final int[][] BINOMIAL = new int[Board.SQUARES + 1][MAX_PIECES + 1];
+
+    static {
+        for (int n = 0; n <= Board.SQUARES; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, MAX_PIECES); k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    /** Maps a table file read-only, or returns null if there is no such table. */
+    public interface Loader {
+        ByteBuffer map(String fileName) throws IOException;
+    }
+
+    private final Loader loader;
+    private final AtomicReferenceArray<ByteBuffer> tables = new AtomicReferenceArray<>(SIGNATURES);
+
+    public Tablebase(Loader loader) {
+        this.loader = loader;
+    }
+
+    /** Tables stored as files in {@code directory}. */
+    public static Tablebase open(final File directory) {
+        return new Tablebase(new Loader() {
+            @Override
+            public ByteBuffer map(String fileName) throws IOException {
+                File file = new File(directory, fileName);
+                if (!file.isFile()) return null;
+                RandomAccessFile in = new RandomAccessFile(file, "r");
+                try {
+                    // The mapping stays valid after the channel is closed
+                    return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+                } finally {
+                    in.close();
+                }
+            }
+        });
+    }
+
+    /** Whether {@code board} is the kind of position tables can exist for. */
+    static boolean covers(Board board) {
+        return board.getHiddenMask() == 0 && board.getCurrentPlayer() != null
+                && Integer.bitCount(~board.getEmptyMask()) <= MAX_PIECES;
+    }
+
+    /**
+     * {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the side to move in {@code board} with
+     * best play, or {@link #UNKNOWN} if something is still face down, there are too many pieces,
+     * or the table for this material is not available. Only meaningful while the game is
+     * ongoing. A win is one reached within {@link Board#NO_PROGRESS_LIMIT} plies of the last
+     * capture, counted from zero, so the result is exact right after a capture; later on a
+     * win may already have run out of plies. Safe to call from several threads.
+     */
+    public int probe(Board board) {
+        if (!covers(board)) return UNKNOWN;
+        ByteBuffer table = table(signature(board));
+        if (table == MISSING) return UNKNOWN;
+        int index = index(board);
+        int stored = table.get(index >>> 2) >> ((index & 3) << 1) & 3;
+        return stored == STORED_WIN ? WIN : stored == STORED_LOSS ? LOSS : DRAW;
+    }
+
+    private ByteBuffer table(int signature) {
+        ByteBuffer table = tables.get(signature);
+        if (table == null) {
+            try {
+                table = loader.map(name(signature));
+            } catch (IOException e) {
+                table = null;
+            }
+            // A table from an older format would answer for the wrong positions
+            if (table == null || table.capacity() != bytes(size(codes(signature)))) table = MISSING;
+            // Racing threads map the same file; either mapping will do
+            tables.set(signature, table);
+        }
+        return table;
+    }
+
+    /** Bytes holding {@code entries} two-bit entries. */
+    static int bytes(int entries) {
+        return (entries + 3) >>> 2;
+    }
+
+    /** The piece with this code in the color-swapped game. */
+    private static int swapColor(int code) {
+        return code < 7 ? code + 7 : code - 7;
+    }
+
+    /** Whether {@code board}'s table is the one for its color-swapped material. */
+    private static boolean swapped(Board board) {
+        int signature = 0;
+        int swapped = 0;
+        for (int code = 0; code < 14; code++) {
+            for (int mask = board.getPieceMask(code); mask != 0; mask &= mask - 1) {
+                signature = signature * 15 + code + 1;
+            }
+            for (int mask = board.getPieceMask(swapColor(code)); mask != 0; mask &= mask - 1) {
+                swapped = swapped * 15 + code + 1;
+            }
+        }
+        return swapped < signature;
+    }
+
+    /** The signature of the table holding {@code board}. */
+    static int signature(Board board) {
+        boolean swapped = swapped(board);
+        int signature = 0;
+        for (int code = 0; code < 14; code++) {
+            for (int mask = board.getPieceMask(swapped ? swapColor(code) : code); mask != 0; mask &= mask - 1) {
+                signature = signature * 15 + code + 1;
+            }
+        }
+        return signature;
+    }
+
+    /** Whether no table exists for {@code codes} because its color-swapped material has it. */
+    static boolean isSwappedSignature(int[] codes) {
+        int[] swapped = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            swapped[i] = swapColor(codes[i]);
+        }
+        Arrays.sort(swapped);
+        return signature(swapped) < signature(codes);
+    }
+
+    /** Reflects a square mask left to right ({@code flip & 7}) and top to bottom ({@code flip & 24}). */
+    private static int mirror(int mask, int flip) {
+        if ((flip & 24) != 0) mask = Integer.reverseBytes(mask);
+        if ((flip & 7) != 0) mask = Integer.reverse(Integer.reverseBytes(mask));
+        return mask;
+    }
+
+    /** The position of {@code board} in the table for {@link #signature(Board)}. */
+    static int index(Board board) {
+        boolean swapped = swapped(board);
+        int index = board.getCurrentPlayer().ordinal() ^ (swapped ? 1 : 0);
+        int lead = -1;
+        int flip = 0;
+        int used = 0;
+        for (int code = 0; code < 14; code++) {
+            int mask = board.getPieceMask(swapped ? swapColor(code) : code);
+            if (Integer.bitCount(mask) == 1) {
+                int sq = Integer.numberOfTrailingZeros(mask);
+                // Row 2 and 3 squares have bit 4 set, columns 4 to 7 bit 2
+                flip = ((sq & 16) != 0 ? 24 : 0) | ((sq & 4) != 0 ? 7 : 0);
+                sq ^= flip;
+                index = index * 8 + (sq & 3 | (sq >> 1) & 4);
+                used = 1 << sq;
+                lead = code;
+                break;
+            }
+        }
+        for (int code = 0; code < 14; code++) {
+            if (code == lead) continue;
+            int mask = mirror(board.getPieceMask(swapped ? swapColor(code) : code), flip);
+            if (mask == 0) continue;
+            int free = Board.SQUARES - Integer.bitCount(used);
+            int combination = 0;
+            int k = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int sq = Integer.numberOfTrailingZeros(rest);
+                // Rank among the squares no earlier piece took
+                int rank = sq - Integer.bitCount(used & ((1 << sq) - 1));
+                combination += BINOMIAL[rank][++k];
+            }
+            index = index * BINOMIAL[free][k] + combination;
+            used |= mask;
+        }
+        return index;
+    }
+
+    /** How many entries the table for the pieces {@code codes}, in code order, has. */
+    static int size(int[] codes) {
+        int lead = lead(codes);
+        int size = lead < 0 ? 2 : 2 * 8;
+        int placed = lead < 0 ? 0 : 1;
+        for (int i = 0; i < codes.length; i += run(codes, i)) {
+            if (i == lead) continue;
+            size *= BINOMIAL[Board.SQUARES - placed][run(codes, i)];
+            placed += run(codes, i);
+        }
+        return size;
+    }
+
+    /**
+     * Fills {@code squareList} with the squares of the pieces {@code codes} at table entry
+     * {@code index}, and returns the side to move. Every entry is a legal placement.
+     */
+    static int decode(int[] codes, int index, int[] squareList) {
+        int count = codes.length;
+        int lead = lead(codes);
+        // Radix of each run's digit, kept at the run's first piece
+        int[] radix = new int[count];
+        int[] digit = new int[count];
+        int placed = lead < 0 ? 0 : 1;
+        for (int i = 0; i < count; i += run(codes, i)) {
+            if (i == lead) continue;
+            radix[i] = BINOMIAL[Board.SQUARES - placed][run(codes, i)];
+            placed += run(codes, i);
+        }
+        // Digits come out least significant first: the last run, back to the leading piece
+        for (int i = count - 1; i >= 0; i--) {
+            if (radix[i] == 0) continue;
+            digit[i] = index % radix[i];
+            index /= radix[i];
+        }
+        int used = 0;
+        if (lead >= 0) {
+            int quarter = index % 8;
+            index /= 8;
+            squareList[lead] = (quarter & 3) | (quarter & 4) << 1;
+            used = 1 << squareList[lead];
+        }
+        for (int i = 0; i < count; i += run(codes, i)) {
+            if (i == lead) continue;
+            int combination = digit[i];
+            int mask = 0;
+            for (int k = run(codes, i); k > 0; k--) {
+                int rank = k - 1;
+                while (BINOMIAL[rank + 1][k] <= combination) rank++;
+                combination -= BINOMIAL[rank][k];
+                mask |= 1 << freeSquare(used, rank);
+            }
+            used |= mask;
+            for (int k = i; mask != 0; k++, mask &= mask - 1) {
+                squareList[k] = Integer.numberOfTrailingZeros(mask);
+            }
+        }
+        return index;
+    }
+
+    /** Where in {@code codes} the first piece with no twin is, or -1 if every piece has one. */
+    private static int lead(int[] codes) {
+        for (int i = 0; i < codes.length; i += run(codes, i)) {
+            if (run(codes, i) == 1) return i;
+        }
+        return -1;
+    }
+
+    /** The {@code rank}-th square, counting from 0, not in {@code used}. */
+    private static int freeSquare(int used, int rank) {
+        int free = ~used;
+        for (; rank > 0; rank--) free &= free - 1;
+        return Integer.numberOfTrailingZeros(free);
+    }
+
+    /** How many pieces from {@code codes[i]} on share its code. */
+    private static int run(int[] codes, int i) {
+        int end = i + 1;
+        while (end < codes.length && codes[end] == codes[i]) end++;
+        return end - i;
+    }
+
+    /** Piece codes of a signature, in code order. */
+    static int[] codes(int signature) {
+        int count = 0;
+        for (int s = signature; s != 0; s /= 15) count++;
+        int[] codes = new int[count];
+        for (int i = count - 1; i >= 0; i--, signature /= 15) {
+            codes[i] = signature % 15 - 1;
+        }
+        return codes;
+    }
+
+    static int signature(int[] codes) {
+        int signature = 0;
+        for (int code : codes) {
+            signature = signature * 15 + code + 1;
+        }
+        return signature;
+    }
+
+    static String name(int signature) {
+        StringBuilder name = new StringBuilder();
+        for (int code : codes(signature)) {
+            char letter = LETTERS.charAt(Board.rankOf(code));
+            name.append(Board.colorOf(code) == Board.RED ? letter : Character.toLowerCase(letter));
+        }
+        return name.append(EXTENSION).toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.chinesedarkchess;
+
+/**
+ * Decides how much of a move's usual time the AI spends on a position. Captures on the board
+ * for either side, cannon captures above all, are where a deeper search changes the move, so
+ * those positions get up to twice the time. A forced move gets none, and positions with only
+ * a couple of moves, or the opening flip where every square is alike, get a fraction.
+ * <p>
+ * Each instance owns its move buffer, so use one per thread.
+ */
+public final class TimeManager {
+    // Shares of the usual time, in sixteenths
+    private static final int USUAL = 16;
+    private static final int TACTICAL = 24;
+    private static final int CANNON_BONUS = 8;
+    private static final int FEW_MOVES = 8;
+    private static final int OPENING = 4;
+    // At most this many moves counts as few
+    private static final int FEW_MOVES_LIMIT = 3;
+
+    private final int[] moves = new int[Move.MAX_MOVES];
+
+    /** The time to search {@code board} for, given the usual {@code baseMillis} per move. */
+    public long budget(Board board, long baseMillis) {
+        Piece.Color player = board.getCurrentPlayer();
+        if (player == null) return baseMillis * OPENING / USUAL;
+        int color = player.ordinal();
+        int count = MoveGenerator.generateAll(board, color, moves, 0);
+        if (count <= 1) return 0;
+
+        int captures = MoveGenerator.generateCaptures(board, color, moves, 0);
+        captures = MoveGenerator.generateCaptures(board, 1 - color, moves, captures);
+        int share = count <= FEW_MOVES_LIMIT ? FEW_MOVES : USUAL;
+        if (captures > 0) {
+            share = Math.max(share, TACTICAL);
+            for (int i = 0; i < captures; i++) {
+                if (Board.rankOf(board.codeAt(Move.from(moves[i]))) == Board.CANNON) {
+                    share += CANNON_BONUS;
+                    break;
+                }
+            }
+        }
+        return baseMillis * share / USUAL;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.chinesedarkchess;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, preallocated as two primitive long arrays.
+ * Buckets hold two entries: the first keeps the deepest result seen for the bucket, the
+ * second is always overwritten, so shallow recent results can't push out expensive ones.
+ * <p>
+ * The table is shared by search threads without locks. Each slot stores its key XORed with
+ * its data, so a slot torn by two threads writing at once fails the key check instead of
+ * returning another position's result.
+ */
+public class TranspositionTable {
+    public static final int DEFAULT_MEGABYTES = 8;
+
+    static final int EXACT = 0;
+    static final int LOWER = 1;
+    static final int UPPER = 2;
+
+    // Entry layout: move (16 bits) | score (16) | depth (8) | bound (2) | generation (8) | valid (1)
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int generation;
+
+    /** Creates a table using at most {@code megabytes} of memory, rounded down to a power of two. */
+    public TranspositionTable(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1, megabytes) * 1024L * 1024L / 16);
+        keys = new long[(int) entries];
+        data = new long[(int) entries];
+        bucketMask = (int) (entries / 2) - 1;
+    }
+
+    /** Starts a new search; entries from older searches lose their claim on the deep slot. */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /** Returns the entry stored for {@code key}, or 0 if there is none. */
+    public long probe(long key) {
+        int index = ((int) key & bucketMask) << 1;
+        long entry = data[index];
+        if (entry != 0 && (keys[index] ^ entry) == key) return entry;
+        entry = data[index + 1];
+        if (entry != 0 && (keys[index + 1] ^ entry) == key) return entry;
+        return 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        long entry = (move & 0xFFFFL)
+                | (score & 0xFFFFL) << 16
+                | (long) (depth & 0xFF) << 32
+                | (long) bound << 40
+                | (long) generation << 42
+                | VALID;
+        int index = ((int) key & bucketMask) << 1;
+        long deep = data[index];
+        boolean sameKey = (keys[index] ^ deep) == key;
+        if (sameKey || deep == 0 || depth >= depth(deep) || generation(deep) != generation) {
+            if (!sameKey && deep != 0) {
+                // Demote the displaced result rather than losing it outright
+                keys[index + 1] = keys[index];
+                data[index + 1] = deep;
+            }
+            keys[index] = key ^ entry;
+            data[index] = entry;
+        } else {
+            keys[index + 1] = key ^ entry;
+            data[index + 1] = entry;
+        }
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 40) & 3;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 42) & 0xFF;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chinesedarkchess;
+
+import java.util.Random;
+
+/**
+ * Random keys for incremental position hashing. A position's key XORs together one key per
+ * face-up piece on its square, one per face-down square, one per (piece, count) of the hidden
+ * pool and one for black to move. Face-down squares do not hash what is under them, since the
+ * players don't know it; the pool keys keep positions with different unrevealed pieces apart.
+ */
+final class Zobrist {
+    static final long[] PIECES = new long[14 * Board.SQUARES];
+    static final long[] HIDDEN = new long[Board.SQUARES];
+    // Indexed by code * 6 + count; no piece has more than five copies
+    static final long[] POOL = new long[14 * 6];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        // Fixed seed so keys, and anything stored by key, are stable between runs
+        Random random = new Random(0x5DEECE66DL);
+        for (int i = 0; i < PIECES.length; i++) PIECES[i] = random.nextLong();
+        for (int i = 0; i < HIDDEN.length; i++) HIDDEN[i] = random.nextLong();
+        for (int i = 0; i < POOL.length; i++) POOL[i] = random.nextLong();
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(int code, int sq) {
+        return PIECES[code * Board.SQUARES + sq];
+    }
+
+    static long pool(int code, int count) {
+        return POOL[code * 6 + count];
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.chinesedarkchess;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BoardTest {
+    /** The pieces, masks, key, side to move and status, as one comparable string. */
+    private static String position(Board board) {
+        StringBuilder state = new StringBuilder();
+        for (int sq = 0; sq < Board.SQUARES; sq++) {
+            state.append(board.codeAt(sq)).append(' ');
+        }
+        for (int code = 0; code < 14; code++) {
+            state.append(board.getPieceMask(code)).append('/').append(board.getHiddenCount(code)).append(' ');
+        }
+        state.append(board.getColorMask(Board.RED)).append(' ').append(board.getColorMask(Board.BLACK))
+                .append(' ').append(board.getHiddenMask()).append(' ').append(board.getEmptyMask())
+                .append(' ').append(board.getMaterial()).append(' ').append(board.getKey())
+                .append(' ').append(board.getCurrentPlayer()).append(' ').append(board.getGameStatus());
+        return state.toString();
+    }
+
+    /** Everything make/unmake must put back, draw bookkeeping included. */
+    private static String state(Board board) {
+        return position(board) + ' ' + board.getQuietPlies() + ' ' + board.isRepetition();
+    }
+
+    /**
+     * Plays random lines {@code depth} deep, checking each unmake. Some flips reveal a random
+     * piece from the pool the way the search's chance nodes do; after one of those the squares
+     * no longer match the pool, so every later flip in the line must name its piece too.
+     */
+    private static void checkUnmake(Board board, Random random, int depth, boolean chance) {
+        if (depth == 0 || board.getGameStatus() != Board.GameStatus.ONGOING) return;
+        int[] moves = new int[Move.MAX_MOVES];
+        Piece.Color player = board.getCurrentPlayer();
+        int count = player == null
+                ? MoveGenerator.generateFlips(board, moves, 0)
+                : MoveGenerator.generateAll(board, player.ordinal(), moves, 0);
+        String before = state(board);
+        for (int i = 0; i < count; i += 1 + random.nextInt(4)) {
+            int move = moves[i];
+            boolean named = chance || Move.isFlip(move) && random.nextBoolean();
+            if (Move.isFlip(move) && named) {
+                int code;
+                do {
+                    code = random.nextInt(14);
+                } while (board.getHiddenCount(code) == 0);
+                move = Move.flip(Move.from(move), code);
+            }
+            board.makeMove(move);
+            checkUnmake(board, random, depth - 1, named);
+            board.unmakeMove();
+            assertEquals("after unmaking " + Integer.toHexString(move), before, state(board));
+        }
+    }
+
+    @Test
+    public void unmakeRestoresKeyAndMasks() {
+        Random random = new Random(7);
+        for (long seed = 1; seed <= 10; seed++) {
+            checkUnmake(new Board(seed), random, 3, false);
+            for (int plies = 8; plies <= 80; plies += 24) {
+                checkUnmake(TestGames.play(seed, plies), random, 3, false);
+            }
+        }
+    }
+
+    @Test
+    public void snapshotRoundTrip() {
+        for (long seed = 1; seed <= 20; seed++) {
+            for (int plies = 0; plies <= 120; plies += 15) {
+                Board board = TestGames.play(seed, plies);
+                byte[] data = board.toBytes();
+                assertEquals(Board.SNAPSHOT_BYTES, data.length);
+                Board copy = Board.fromBytes(data);
+                assertArrayEquals(data, copy.toBytes());
+                assertEquals(board.getKey(), copy.getKey());
+                assertEquals(board.getAiColor(), copy.getAiColor());
+                // Snapshots leave out the history, so the copy's draw bookkeeping starts afresh
+                assertEquals(position(board), position(copy));
+            }
+        }
+    }
+
+    @Test
+    public void snapshotAtOffset() {
+        Board board = TestGames.play(5, 30);
+        byte[] data = new byte[Board.SNAPSHOT_BYTES + 7];
+        board.toBytes(data, 7);
+        assertEquals(board.getKey(), Board.fromBytes(data, 7).getKey());
+    }
+
+    @Test
+    public void fromBytesRejectsCorruptSnapshots() {
+        byte[] data = new Board(1).toBytes();
+        expectRejected(new byte[Board.SNAPSHOT_BYTES - 1]);
+        byte[] version = data.clone();
+        version[0]++;
+        expectRejected(version);
+        byte[] square = data.clone();
+        square[1] = 14;
+        expectRejected(square);
+        byte[] status = data.clone();
+        status[Board.SNAPSHOT_BYTES - 1] = 9;
+        expectRejected(status);
+    }
+
+    private static void expectRejected(byte[] data) {
+        try {
+            Board.fromBytes(data);
+            fail("accepted a corrupt snapshot");
+        } catch (IllegalArgumentException expected) {
+            // fromBytes must refuse rather than build a broken board
+        }
+    }
+}
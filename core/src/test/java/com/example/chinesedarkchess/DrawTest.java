@@ -0,0 +1,119 @@
+package com.example.chinesedarkchess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DrawTest {
+    private static final int RED_CHARIOT = Board.code(Board.RED, Piece.Rank.CHARIOT.ordinal());
+    private static final int BLACK_HORSE = Board.code(Board.BLACK, Piece.Rank.HORSE.ordinal());
+
+    /** Red chariot and black horse alone, both free to walk about; red to move. */
+    private static Board walkers(int redSquare, int blackSquare) {
+        Board board = new Board(1);
+        board.setPosition(new int[] {RED_CHARIOT, BLACK_HORSE}, new int[] {redSquare, blackSquare}, 2, Board.RED);
+        return board;
+    }
+
+    private static void move(Board board, int from, int to) {
+        assertEquals(Board.GameStatus.ONGOING, board.getGameStatus());
+        assertTrue(board.movePiece(from >> 3, from & 7, to >> 3, to & 7));
+    }
+
+    @Test
+    public void threefoldRepetition() {
+        Board board = walkers(Board.square(0, 0), Board.square(3, 7));
+        int[][] cycle = {{0, 1}, {31, 30}, {1, 0}, {30, 31}};
+        for (int ply = 0; ply < 8; ply++) {
+            move(board, cycle[ply % 4][0], cycle[ply % 4][1]);
+            // Every position recurs from the end of the first cycle; the start's third time draws
+            assertEquals(ply >= 3, board.isRepetition());
+        }
+        assertEquals(Board.GameStatus.DRAW, board.getGameStatus());
+    }
+
+    @Test
+    public void unmakeTakesBackTheRepetition() {
+        Board board = walkers(Board.square(0, 0), Board.square(3, 7));
+        int[] moves = new int[Move.MAX_MOVES];
+        int[][] cycle = {{0, 1}, {31, 30}, {1, 0}, {30, 31}};
+        for (int ply = 0; ply < 7; ply++) {
+            move(board, cycle[ply % 4][0], cycle[ply % 4][1]);
+        }
+        long key = board.getKey();
+        int count = MoveGenerator.generateAll(board, Board.BLACK, moves, 0);
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            assertEquals(Move.to(moves[i]) == 31, board.getGameStatus() == Board.GameStatus.DRAW);
+            board.unmakeMove();
+            assertEquals(Board.GameStatus.ONGOING, board.getGameStatus());
+            assertEquals(key, board.getKey());
+            assertEquals(7, board.getQuietPlies());
+        }
+    }
+
+    @Test
+    public void noProgress() {
+        // The chariot snakes over every square but the horse's two, and back; no position
+        // comes up a third time, so only the no-progress count can end the game.
+        int[] path = new int[30];
+        int n = 0;
+        for (int col = 5; col >= 0; col--) path[n++] = Board.square(3, col);
+        for (int col = 0; col < 8; col++) path[n++] = Board.square(2, col);
+        for (int col = 7; col >= 0; col--) path[n++] = Board.square(1, col);
+        for (int col = 0; col < 8; col++) path[n++] = Board.square(0, col);
+        Board board = walkers(path[0], Board.square(3, 7));
+        int at = 0;
+        int step = 1;
+        for (int ply = 0; ply < Board.NO_PROGRESS_LIMIT; ply += 2) {
+            if (at + step == path.length) step = -1;
+            move(board, path[at], path[at + step]);
+            at += step;
+            int horse = Integer.numberOfTrailingZeros(board.getPieceMask(BLACK_HORSE));
+            move(board, horse, horse == Board.square(3, 7) ? Board.square(3, 6) : Board.square(3, 7));
+            assertEquals(ply + 2, board.getQuietPlies());
+        }
+        assertEquals(Board.GameStatus.DRAW, board.getGameStatus());
+    }
+
+    @Test
+    public void searchOnALongPlayedOnGameKeepsItsHistory() {
+        Board board = walkers(Board.square(0, 0), Board.square(3, 7));
+        int[][] cycle = {{0, 1}, {31, 30}, {1, 0}, {30, 31}};
+        // Drawn after a few plies, but a finished game can still be played on; once it had
+        // almost filled the history, a search on top used to start it afresh mid-search
+        int ply = 0;
+        for (; ply < 227; ply++) {
+            assertTrue(board.movePiece(cycle[ply % 4][0] >> 3, cycle[ply % 4][0] & 7,
+                    cycle[ply % 4][1] >> 3, cycle[ply % 4][1] & 7));
+        }
+        assertEquals(Board.GameStatus.DRAW, board.getGameStatus());
+        long key = board.getKey();
+        int searched = Board.MAX_PLY - 1;
+        for (int i = 0; i < searched; i++, ply++) {
+            board.makeMove(Move.quiet(cycle[ply % 4][0], cycle[ply % 4][1]));
+            assertTrue(board.isRepetition());
+        }
+        for (int i = 0; i < searched; i++) {
+            board.unmakeMove();
+            assertTrue(board.isRepetition());
+        }
+        assertEquals(key, board.getKey());
+        assertEquals(227, board.getQuietPlies());
+    }
+
+    @Test
+    public void captureEndsTheHistory() {
+        Board board = walkers(Board.square(1, 1), Board.square(2, 3));
+        move(board, Board.square(1, 1), Board.square(1, 2));
+        move(board, Board.square(2, 3), Board.square(2, 2));
+        assertEquals(2, board.getQuietPlies());
+        // A chariot outranks a horse, and taking the last black piece wins
+        move(board, Board.square(1, 2), Board.square(2, 2));
+        assertEquals(0, board.getQuietPlies());
+        assertFalse(board.isRepetition());
+        assertEquals(Board.GameStatus.RED_WIN, board.getGameStatus());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.chinesedarkchess;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class GameRecordTest {
+    private static final int GAMES = 40;
+    private static final int MAX_PLIES = 300;
+
+    /**
+     * Plays a seeded random game with recording on, adding a snapshot of the board before the
+     * first ply and after each one to {@code snapshots}. Odd seeds let the AI make the opening flip.
+     */
+    private static Board play(long seed, List<byte[]> snapshots) {
+        Board board = new Board(seed);
+        board.startRecording();
+        snapshots.add(board.toBytes());
+        Random random = new Random(seed);
+        int[] moves = new int[Move.MAX_MOVES];
+        if (seed % 2 == 1) {
+            board.forceAiFirstMove();
+        } else {
+            int square = random.nextInt(Board.SQUARES);
+            board.flipPiece(square >> 3, square & 7);
+        }
+        snapshots.add(board.toBytes());
+        while (board.getGameStatus() == Board.GameStatus.ONGOING && snapshots.size() <= MAX_PLIES) {
+            board.applyAiMove(TestGames.randomMove(board, random, moves));
+            snapshots.add(board.toBytes());
+        }
+        return board;
+    }
+
+    @Test
+    public void positionAtReplaysEveryPly() {
+        for (long seed = 1; seed <= GAMES; seed++) {
+            List<byte[]> snapshots = new ArrayList<byte[]>();
+            GameRecord record = play(seed, snapshots).getRecord();
+            assertEquals(snapshots.size() - 1, record.size());
+            for (int ply = 0; ply <= record.size(); ply++) {
+                assertArrayEquals("seed " + seed + " ply " + ply, snapshots.get(ply), record.positionAt(ply).toBytes());
+            }
+        }
+    }
+
+    @Test
+    public void replayedPositionsKeepTheirHistory() {
+        for (long seed = 1; seed <= GAMES; seed++) {
+            Board board = play(seed, new ArrayList<byte[]>());
+            Board replayed = board.getRecord().positionAt(board.getRecord().size());
+            assertEquals(board.getKey(), replayed.getKey());
+            assertEquals(board.isRepetition(), replayed.isRepetition());
+            assertEquals(board.getGameStatus(), replayed.getGameStatus());
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        for (long seed = 1; seed <= GAMES; seed++) {
+            GameRecord record = play(seed, new ArrayList<byte[]>()).getRecord();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            record.writeTo(out);
+            GameRecord read = GameRecord.read(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(record.size(), read.size());
+            for (int ply = 0; ply < record.size(); ply++) {
+                assertEquals(record.entry(ply), read.entry(ply));
+            }
+            assertArrayEquals(record.positionAt(record.size()).toBytes(), read.positionAt(read.size()).toBytes());
+        }
+    }
+
+    @Test
+    public void writeNewStreamsTheSameBytes() throws IOException {
+        List<byte[]> snapshots = new ArrayList<byte[]>();
+        Board board = play(3, snapshots);
+        ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        board.getRecord().writeTo(whole);
+
+        // The same game again, written a few plies at a time as it is played
+        Board streamed = new Board(3);
+        GameRecord record = streamed.startRecording();
+        Random random = new Random(3);
+        int[] moves = new int[Move.MAX_MOVES];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streamed.forceAiFirstMove();
+        record.writeNew(out);
+        for (int ply = 2; ply < snapshots.size(); ply++) {
+            streamed.applyAiMove(TestGames.randomMove(streamed, random, moves));
+            if (ply % 7 == 0) record.writeNew(out);
+        }
+        record.writeNew(out);
+        assertArrayEquals(whole.toByteArray(), out.toByteArray());
+    }
+}
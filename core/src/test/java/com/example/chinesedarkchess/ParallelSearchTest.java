@@ -0,0 +1,41 @@
+package com.example.chinesedarkchess;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelSearchTest {
+    private final ParallelSearch search = new ParallelSearch(2, 1);
+
+    @After
+    public void shutDown() {
+        search.shutdown();
+    }
+
+    @Test
+    public void stopBeforeTheSearchStartsIsKept() {
+        Board board = TestGames.play(1, 24);
+        int generation = search.getStopGeneration();
+        search.requestStop();
+        long start = System.currentTimeMillis();
+        int move = search.search(board, 60000, Integer.MAX_VALUE, Long.MAX_VALUE, 2, generation);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertNotEquals(Move.NONE, move);
+    }
+
+    @Test
+    public void stopBeforeAnotherGenerationIsIgnored() {
+        Board board = TestGames.play(1, 24);
+        search.requestStop();
+        int generation = search.getStopGeneration();
+        search.search(board, 60000, 3, Long.MAX_VALUE, 2, generation);
+        assertEquals(3, search.getDepth());
+        // Nor does the plain search see a stop from before it
+        search.requestStop();
+        search.search(board, 60000, 3, Long.MAX_VALUE, 2);
+        assertEquals(3, search.getDepth());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.chinesedarkchess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Leaf counts of the full move tree for fixed deals. Flips reveal whatever the seed put under
+ * the square, so the counts are exact and change only if move generation or make/unmake does.
+ */
+public class PerftTest {
+    static long perft(Board board, int depth, int[][] moves) {
+        if (depth == 0 || board.getGameStatus() != Board.GameStatus.ONGOING) return 1;
+        int[] buffer = moves[depth - 1];
+        Piece.Color player = board.getCurrentPlayer();
+        int count = player == null
+                ? MoveGenerator.generateFlips(board, buffer, 0)
+                : MoveGenerator.generateAll(board, player.ordinal(), buffer, 0);
+        if (depth == 1) return count;
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(buffer[i]);
+            nodes += perft(board, depth - 1, moves);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static void assertPerft(Board board, long... expected) {
+        int[][] moves = new int[expected.length][Move.MAX_MOVES];
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals("perft(" + depth + ")", expected[depth - 1], perft(board, depth, moves));
+        }
+    }
+
+    @Test
+    public void startPosition() {
+        assertPerft(new Board(1), 32, 992, 29799, 867720);
+    }
+
+    @Test
+    public void afterFirstFlip() {
+        Board board = new Board(1);
+        board.forceAiFirstMove();
+        assertPerft(board, 31, 932, 27126, 768113);
+    }
+
+    @Test
+    public void middlegame() {
+        assertPerft(TestGames.play(1, 24), 19, 400, 7413, 158246);
+    }
+}
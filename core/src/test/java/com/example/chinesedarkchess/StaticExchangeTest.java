@@ -0,0 +1,63 @@
+package com.example.chinesedarkchess;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StaticExchangeTest {
+    private static final int GAMES = 200;
+    private static final int MAX_PLIES = 300;
+
+    private final int[][] moves = new int[64][Move.MAX_MOVES];
+
+    /**
+     * What the side to move gains by capturing on {@code square} and playing the exchange out
+     * with real moves, each side free to stop; 0 if it does better to leave it.
+     */
+    private int exchange(Board board, int square, int ply) {
+        int[] captures = moves[ply];
+        int count = MoveGenerator.generateCaptures(board, board.getCurrentPlayer().ordinal(), captures, 0);
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            int capture = captures[i];
+            if (Move.to(capture) != square) continue;
+            int prize = Evaluator.PIECE_VALUES[Board.rankOf(board.codeAt(square))];
+            board.makeMove(capture);
+            int reply = board.getGameStatus() == Board.GameStatus.ONGOING ? exchange(board, square, ply + 1) : 0;
+            board.unmakeMove();
+            best = Math.max(best, prize - reply);
+        }
+        return best;
+    }
+
+    @Test
+    public void agreesWithPlayingTheExchangeOut() {
+        Random random = new Random(5);
+        int[] captures = new int[Move.MAX_MOVES];
+        int checked = 0;
+        for (long seed = 0; seed < GAMES; seed++) {
+            Board board = new Board(seed);
+            board.forceAiFirstMove();
+            for (int ply = 0; ply < MAX_PLIES && board.getGameStatus() == Board.GameStatus.ONGOING; ply++) {
+                int count = MoveGenerator.generateCaptures(board, board.getCurrentPlayer().ordinal(), captures, 0);
+                for (int i = 0; i < count; i++) {
+                    int capture = captures[i];
+                    int to = Move.to(capture);
+                    int expected = Evaluator.PIECE_VALUES[Board.rankOf(board.codeAt(to))];
+                    board.makeMove(capture);
+                    if (board.getGameStatus() == Board.GameStatus.ONGOING) expected -= exchange(board, to, 0);
+                    board.unmakeMove();
+                    assertEquals("seed " + seed + " ply " + ply + " capture " + Move.from(capture) + "-" + to,
+                            expected, StaticExchange.evaluate(board, capture));
+                    checked++;
+                }
+                board.applyAiMove(TestGames.randomMove(board, random, captures));
+            }
+        }
+        // Enough captures that every rank and cannon screen turns up
+        assertTrue(checked > 10000);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.chinesedarkchess;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TablebaseTest {
+    private static final int G = 0, A = 1, R = 3, H = 4, S = 5, C = 6;
+    private static final int BLACK = 7;
+    // Material with and without twins, on both sides of the color swap
+    private static final int[][] ENDGAMES = {
+            {G, BLACK + R}, {S, BLACK + G}, {R, BLACK + H, BLACK + C}, {G, BLACK + S, BLACK + S},
+            {A, S, BLACK + R}, {C, C, BLACK + H}, {H, BLACK + H, BLACK + C},
+    };
+
+    private static File directory;
+    private static Tablebase tablebase;
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        directory = File.createTempFile("tablebases", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        new TablebaseGenerator().generate(3, directory);
+        tablebase = Tablebase.open(directory);
+    }
+
+    @AfterClass
+    public static void deleteTables() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        directory.delete();
+    }
+
+    /** {@code codes} on random distinct squares with a random side to move, once the game is still on. */
+    private static Board randomPosition(int[] codes, Random random) {
+        Board board = new Board(1);
+        int[] squares = new int[codes.length];
+        do {
+            int occupied = 0;
+            for (int i = 0; i < codes.length; i++) {
+                int sq;
+                do {
+                    sq = random.nextInt(Board.SQUARES);
+                } while ((occupied & 1 << sq) != 0);
+                occupied |= 1 << sq;
+                squares[i] = sq;
+            }
+            board.setPosition(codes, squares, codes.length, random.nextInt(2));
+        } while (board.getGameStatus() != Board.GameStatus.ONGOING);
+        return board;
+    }
+
+    @Test
+    public void everyEntryDecodesToItself() {
+        int[][] signatures = {{G, BLACK + R}, {S, S, BLACK + C}, {G, R, BLACK + R, BLACK + C}, {S, S, BLACK + S, BLACK + S}};
+        Board board = new Board(1);
+        for (int[] codes : signatures) {
+            int[] squares = new int[codes.length];
+            int size = Tablebase.size(codes);
+            for (int index = 0; index < size; index++) {
+                int player = Tablebase.decode(codes, index, squares);
+                board.setPosition(codes, squares, codes.length, player);
+                assertEquals(Tablebase.signature(codes), Tablebase.signature(board));
+                assertEquals(index, Tablebase.index(board));
+            }
+        }
+    }
+
+    @Test
+    public void mirroredAndColorSwappedPositionsShareAnEntry() {
+        Random random = new Random(3);
+        Board other = new Board(1);
+        for (int[] codes : ENDGAMES) {
+            int[] swapped = new int[codes.length];
+            int[] squares = new int[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                swapped[i] = codes[i] < BLACK ? codes[i] + BLACK : codes[i] - BLACK;
+            }
+            for (int n = 0; n < 500; n++) {
+                Board board = randomPosition(codes, random);
+                // Rows 0-3 mirror with square ^ 24, columns 0-7 with square ^ 7
+                int flip = (random.nextBoolean() ? 24 : 0) | (random.nextBoolean() ? 7 : 0);
+                for (int i = 0, code = 0; code < 14; code++) {
+                    for (int mask = board.getPieceMask(code); mask != 0; mask &= mask - 1) {
+                        squares[i++] = Integer.numberOfTrailingZeros(mask) ^ flip;
+                    }
+                }
+                other.setPosition(swapped, squares, codes.length, 1 - board.getCurrentPlayer().ordinal());
+                assertEquals(Tablebase.signature(board), Tablebase.signature(other));
+                assertEquals(Tablebase.index(board), Tablebase.index(other));
+                assertEquals(tablebase.probe(board), tablebase.probe(other));
+            }
+        }
+    }
+
+    /** What {@code move} is worth to the side playing it, by the rules or the tables. */
+    private static int resultOf(Board board, int move) {
+        int mover = board.getCurrentPlayer().ordinal();
+        board.makeMove(move);
+        Board.GameStatus status = board.getGameStatus();
+        int result;
+        if (status == Board.GameStatus.ONGOING) {
+            result = -tablebase.probe(board);
+        } else {
+            result = (status == Board.GameStatus.RED_WIN) == (mover == Board.RED) ? Tablebase.WIN : Tablebase.LOSS;
+        }
+        board.unmakeMove();
+        return result;
+    }
+
+    @Test
+    public void everyProbeIsTheBestOfItsMoves() {
+        Random random = new Random(5);
+        int[] moves = new int[Move.MAX_MOVES];
+        for (int[] codes : ENDGAMES) {
+            for (int n = 0; n < 2000; n++) {
+                Board board = randomPosition(codes, random);
+                int count = MoveGenerator.generateAll(board, board.getCurrentPlayer().ordinal(), moves, 0);
+                int best = Tablebase.LOSS;
+                for (int i = 0; i < count; i++) {
+                    best = Math.max(best, resultOf(board, moves[i]));
+                }
+                assertEquals(best, tablebase.probe(board));
+            }
+        }
+    }
+
+    @Test
+    public void probesAgreeWithFullSearch() {
+        Random random = new Random(7);
+        SearchEngine engine = new SearchEngine(new TranspositionTable(4), 0);
+        final int[] score = new int[1];
+        SearchEngine.AnalysisListener listener = new SearchEngine.AnalysisListener() {
+            @Override
+            public void onAnalysis(int depth, int[] moves, int[] scores, int count) {
+                score[0] = scores[0];
+            }
+        };
+        int proven = 0;
+        for (int[] codes : ENDGAMES) {
+            for (int n = 0; n < 40; n++) {
+                Board board = randomPosition(codes, random);
+                engine.clearTable();
+                engine.analyze(board, 1, Long.MAX_VALUE / 4, 9, listener);
+                // Only a result the search played out to the end is certain
+                if (Math.abs(score[0]) < SearchEngine.WIN - Board.MAX_PLY) continue;
+                proven++;
+                assertEquals(score[0] > 0 ? Tablebase.WIN : Tablebase.LOSS, tablebase.probe(board));
+            }
+        }
+        assertTrue(proven > 0);
+    }
+
+    @Test
+    public void searchKeepsTheResult() {
+        Random random = new Random(9);
+        SearchEngine engine = new SearchEngine(new TranspositionTable(4), 0);
+        engine.setTablebase(tablebase);
+        for (int[] codes : ENDGAMES) {
+            for (int n = 0; n < 30; n++) {
+                Board board = randomPosition(codes, random);
+                int move = engine.search(board, Long.MAX_VALUE / 4, 4);
+                assertEquals(tablebase.probe(board), resultOf(board, move));
+            }
+        }
+    }
+}
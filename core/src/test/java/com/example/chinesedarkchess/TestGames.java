@@ -0,0 +1,31 @@
+package com.example.chinesedarkchess;
+
+import java.util.Random;
+
+/** Reproducible positions reached by seeded random play, the way the benchmarks reach theirs. */
+final class TestGames {
+    private TestGames() {
+    }
+
+    /** The position after {@code plies} seeded moves, captures preferred, or where the game ended. */
+    static Board play(long seed, int plies) {
+        Board board = new Board(seed);
+        Random random = new Random(seed);
+        int[] moves = new int[Move.MAX_MOVES];
+        board.forceAiFirstMove();
+        for (int ply = 0; ply < plies && board.getGameStatus() == Board.GameStatus.ONGOING; ply++) {
+            board.applyAiMove(randomMove(board, random, moves));
+        }
+        return board;
+    }
+
+    /** A legal move for the side to move; a capture two times in three when there is one. */
+    static int randomMove(Board board, Random random, int[] moves) {
+        int color = board.getCurrentPlayer().ordinal();
+        int count = MoveGenerator.generateCaptures(board, color, moves, 0);
+        if (count == 0 || random.nextInt(3) == 0) {
+            count = MoveGenerator.generateAll(board, color, moves, 0);
+        }
+        return moves[random.nextInt(count)];
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.chinesedarkchess;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays two AI configurations against each other in parallel and reports the result as an
+ * Elo difference, stopping early once an SPRT decides between {@code elo0} and {@code elo1}.
+ * <p>
+ * Games come in pairs dealt from the same seed with the first move swapped, so neither side
+ * profits from a lucky shuffle. Depth-limited players make every game reproducible from its
+ * seed; time-limited ones depend on machine load. Games end in a draw by repetition or after
+ * {@link Board#NO_PROGRESS_LIMIT} plies without a capture or flip; any still running after
+ * {@code maxPlies} are adjudicated as draws too, and counted apart.
+ * <p>
+ * Run with {@code gradlew :core:arena --args="a=depth:4 b=depth:3 games=2000"}. Options:
+ * {@code a=}, {@code b=} player specs such as {@code depth:5}, {@code time:200},
+ * {@code nodes:50000}, {@code depth:6,time:500,hash:16}, {@code level:EASY}, which plays at a
+ * {@link Difficulty}'s budgets with {@link TimeManager} sharing out its time, or {@code mcts:20000},
+ * which plays {@link MctsEngine} with that many playouts a move. {@code eval:1/6/2} adds evaluator
+ * weights to a spec, as mobility/hanging/defended, for tuning them; they are set for the whole
+ * process before each move, so matches using them run on one thread. Other options are
+ * {@code games=}, {@code threads=}, {@code seed=},
+ * {@code maxPlies=}, {@code elo0=}, {@code elo1=}, {@code alpha=}, {@code beta=}, and
+ * {@code records=} a directory to write every game's {@link GameRecord} to, as
+ * {@code game-<index>.rec}, for replaying games that went wrong.
+ */
+public class Arena {
+    /** How much one side may search per move, and with how large a transposition table. */
+    static final class Player {
+        final String spec;
+        final int maxDepth;
+        final long timeMillis;
+        final long maxNodes;
+        final int tableMegabytes;
+        // Whether the time is a usual move's, shared out by a TimeManager
+        final boolean managed;
+        // Playouts per move for MctsEngine; 0 plays SearchEngine
+        final long playouts;
+        // Evaluator weights as mobility, hanging, defended; null for the shipped ones
+        final int[] weights;
+
+        Player(String spec) {
+            int depth = Integer.MAX_VALUE;
+            long time = Long.MAX_VALUE / 4;
+            long nodes = Long.MAX_VALUE;
+            int hash = 4;
+            boolean managed = false;
+            long playouts = 0;
+            int[] weights = null;
+            for (String part : spec.split(",")) {
+                String[] pair = part.split(":");
+                if (pair.length != 2) throw new IllegalArgumentException("Bad player spec: " + spec);
+                if (pair[0].equals("eval")) {
+                    String[] values = pair[1].split("/");
+                    if (values.length != 3) throw new IllegalArgumentException("Bad evaluator weights: " + pair[1]);
+                    weights = new int[3];
+                    for (int i = 0; i < 3; i++) {
+                        weights[i] = Integer.parseInt(values[i]);
+                    }
+                    continue;
+                }
+                if (pair[0].equals("level")) {
+                    Difficulty level = Difficulty.valueOf(pair[1].toUpperCase(Locale.US));
+                    depth = level.maxDepth;
+                    time = level.timeMillis;
+                    nodes = level.maxNodes;
+                    managed = true;
+                    continue;
+                }
+                long value = Long.parseLong(pair[1]);
+                if (pair[0].equals("nodes")) {
+                    nodes = value;
+                } else if (pair[0].equals("depth")) {
+                    depth = (int) value;
+                } else if (pair[0].equals("time")) {
+                    time = value;
+                } else if (pair[0].equals("hash")) {
+                    hash = (int) value;
+                } else if (pair[0].equals("mcts")) {
+                    playouts = value;
+                } else {
+                    throw new IllegalArgumentException("Unknown player option: " + pair[0]);
+                }
+            }
+            if (depth == Integer.MAX_VALUE && time == Long.MAX_VALUE / 4 && nodes == Long.MAX_VALUE && playouts == 0) {
+                throw new IllegalArgumentException("Player needs a depth, time, node or playout limit: " + spec);
+            }
+            this.spec = spec;
+            this.maxDepth = depth;
+            this.timeMillis = time;
+            this.maxNodes = nodes;
+            this.tableMegabytes = hash;
+            this.managed = managed;
+            this.playouts = playouts;
+            this.weights = weights;
+        }
+
+        /** Makes every evaluation use this player's weights until the next call. */
+        void useWeights() {
+            if (weights != null) {
+                Evaluator.setWeights(weights[0], weights[1], weights[2]);
+            } else {
+                Evaluator.setWeights(Evaluator.MOBILITY, Evaluator.HANGING, Evaluator.DEFENDED);
+            }
+        }
+
+        /** An MCTS arena with room for the tree {@link #playouts} playouts grow. */
+        MctsEngine newMctsEngine() {
+            return new MctsEngine(1, (int) Math.min(1 << 24, Math.max(MctsEngine.DEFAULT_NODES, playouts * 16)));
+        }
+    }
+
+    private final Player[] players;
+    private final int games;
+    private final int threads;
+    private final long seed;
+    private final int maxPlies;
+    private final double elo0, elo1, lowerBound, upperBound;
+    private File recordDirectory;
+
+    // Guarded by this
+    private int wins, draws, losses, played;
+    // Draws the rules did not decide, ended by maxPlies
+    private int adjudicated;
+    private final long[] moveNanos = new long[2];
+    private final long[] moveCounts = new long[2];
+    private String verdict;
+
+    Arena(Player a, Player b, int games, int threads, long seed, int maxPlies,
+          double elo0, double elo1, double alpha, double beta) {
+        this.players = new Player[] {a, b};
+        this.games = games;
+        this.threads = threads;
+        this.seed = seed;
+        this.maxPlies = maxPlies;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String a = null, b = null;
+        int games = 1000, threads = Runtime.getRuntime().availableProcessors(), maxPlies = 300;
+        long seed = 1;
+        double elo0 = 0, elo1 = 10, alpha = 0.05, beta = 0.05;
+        File records = null;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            if (key.equals("a")) a = value;
+            else if (key.equals("b")) b = value;
+            else if (key.equals("games")) games = Integer.parseInt(value);
+            else if (key.equals("threads")) threads = Integer.parseInt(value);
+            else if (key.equals("seed")) seed = Long.parseLong(value);
+            else if (key.equals("maxPlies")) maxPlies = Integer.parseInt(value);
+            else if (key.equals("elo0")) elo0 = Double.parseDouble(value);
+            else if (key.equals("elo1")) elo1 = Double.parseDouble(value);
+            else if (key.equals("alpha")) alpha = Double.parseDouble(value);
+            else if (key.equals("beta")) beta = Double.parseDouble(value);
+            else if (key.equals("records")) records = new File(value);
+            else throw new IllegalArgumentException("Unknown option: " + key);
+        }
+        if (a == null || b == null) {
+            System.err.println("usage: Arena a=<spec> b=<spec> [games=N] [threads=N] [seed=N] [maxPlies=N]"
+                    + " [elo0=E] [elo1=E] [alpha=P] [beta=P] [records=DIR]");
+            System.exit(2);
+        }
+        Player playerA = new Player(a);
+        Player playerB = new Player(b);
+        if ((playerA.weights != null || playerB.weights != null) && threads != 1) {
+            throw new IllegalArgumentException("Evaluator weights are shared by every thread; use threads=1");
+        }
+        Arena arena = new Arena(playerA, playerB, games, threads, seed, maxPlies, elo0, elo1, alpha, beta);
+        if (records != null) {
+            if (!records.isDirectory() && !records.mkdirs()) {
+                throw new IllegalArgumentException("Cannot create " + records);
+            }
+            arena.recordDirectory = records;
+        }
+        arena.run();
+    }
+
+    void run() throws InterruptedException {
+        System.out.println(String.format(Locale.US, "A: %s  B: %s  %d games on %d threads, SPRT elo0=%.1f elo1=%.1f",
+                players[0].spec, players[1].spec, games, threads, elo0, elo1));
+        final ThreadLocal<SearchEngine[]> engines = new ThreadLocal<SearchEngine[]>() {
+            @Override
+            protected SearchEngine[] initialValue() {
+                return new SearchEngine[] {
+                        new SearchEngine(new TranspositionTable(players[0].tableMegabytes), 0),
+                        new SearchEngine(new TranspositionTable(players[1].tableMegabytes), 0)};
+            }
+        };
+        final ThreadLocal<MctsEngine[]> mctsEngines = new ThreadLocal<MctsEngine[]>() {
+            @Override
+            protected MctsEngine[] initialValue() {
+                return new MctsEngine[] {
+                        players[0].playouts > 0 ? players[0].newMctsEngine() : null,
+                        players[1].playouts > 0 ? players[1].newMctsEngine() : null};
+            }
+        };
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int game = 0; game < games; game++) {
+            final int index = game;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isDecided()) return;
+                    playGame(index, engines.get(), mctsEngines.get());
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        report(System.nanoTime() - start);
+    }
+
+    private synchronized boolean isDecided() {
+        return verdict != null;
+    }
+
+    /** Game {@code index} uses deal {@code seed + index / 2}; odd games give B the first move. */
+    private void playGame(int index, SearchEngine[] engines, MctsEngine[] mctsEngines) {
+        Board board = new Board(seed + index / 2);
+        if (recordDirectory != null) {
+            board.startRecording();
+        }
+        int first = index & 1;
+        long[] nanos = new long[2];
+        long[] counts = new long[2];
+        TimeManager timeManager = new TimeManager();
+        // Which player (0 = A) holds each color; the first mover's flip decides it
+        int[] playerOf = new int[2];
+
+        boolean weighted = players[0].weights != null || players[1].weights != null;
+        if (weighted) players[first].useWeights();
+        long startMove = System.nanoTime();
+        board.forceAiFirstMove();
+        nanos[first] += System.nanoTime() - startMove;
+        counts[first]++;
+        playerOf[board.getAiColor().ordinal()] = first;
+        playerOf[1 - board.getAiColor().ordinal()] = 1 - first;
+
+        engines[0].clearTable();
+        engines[1].clearTable();
+        int plies = 1;
+        while (board.getGameStatus() == Board.GameStatus.ONGOING && plies < maxPlies) {
+            int player = playerOf[board.getCurrentPlayer().ordinal()];
+            Player limits = players[player];
+            startMove = System.nanoTime();
+            long time = limits.managed ? timeManager.budget(board, limits.timeMillis) : limits.timeMillis;
+            if (weighted) limits.useWeights();
+            int move = limits.playouts > 0
+                    ? mctsEngines[player].search(board, time, limits.playouts)
+                    : engines[player].search(board, time, limits.maxDepth, limits.maxNodes);
+            nanos[player] += System.nanoTime() - startMove;
+            counts[player]++;
+            board.applyAiMove(move);
+            plies++;
+        }
+
+        Board.GameStatus status = board.getGameStatus();
+        int result;
+        if (status == Board.GameStatus.RED_WIN) {
+            result = playerOf[Board.RED] == 0 ? 1 : -1;
+        } else if (status == Board.GameStatus.BLACK_WIN) {
+            result = playerOf[Board.BLACK] == 0 ? 1 : -1;
+        } else {
+            result = 0;
+        }
+        if (recordDirectory != null) {
+            writeRecord(index, board.getRecord());
+        }
+        record(result, status == Board.GameStatus.ONGOING, nanos, counts);
+    }
+
+    private void writeRecord(int index, GameRecord gameRecord) {
+        File file = new File(recordDirectory, "game-" + index + ".rec");
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                gameRecord.writeTo(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write " + file + ": " + e);
+        }
+    }
+
+    private synchronized void record(int result, boolean unfinished, long[] nanos, long[] counts) {
+        if (result > 0) wins++;
+        else if (result < 0) losses++;
+        else draws++;
+        if (unfinished) adjudicated++;
+        played++;
+        for (int i = 0; i < 2; i++) {
+            moveNanos[i] += nanos[i];
+            moveCounts[i] += counts[i];
+        }
+        if (verdict == null) {
+            double llr = llr();
+            if (llr >= upperBound) verdict = "H1 accepted: A is at least " + elo1 + " Elo stronger";
+            else if (llr <= lowerBound) verdict = "H0 accepted: A is not " + elo1 + " Elo stronger";
+        }
+        if (played % 100 == 0) {
+            System.out.println(String.format(Locale.US, "%6d games  +%d =%d -%d  %s  LLR %.2f",
+                    played, wins, draws, losses, eloString(), llr()));
+        }
+    }
+
+    /** Generalized SPRT log-likelihood ratio under the normal approximation of the trinomial. */
+    private double llr() {
+        if (wins == 0 || losses == 0) return 0;
+        double n = played;
+        double score = (wins + draws / 2.0) / n;
+        double variance = (wins * sq(1 - score) + draws * sq(0.5 - score) + losses * sq(score)) / n;
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return (s1 - s0) * (2 * score - s0 - s1) / (2 * variance / n);
+    }
+
+    private String eloString() {
+        double n = played;
+        double score = (wins + draws / 2.0) / n;
+        double variance = (wins * sq(1 - score) + draws * sq(0.5 - score) + losses * sq(score)) / n;
+        double margin = 1.96 * Math.sqrt(variance / n);
+        double elo = elo(score);
+        double error = (elo(score + margin) - elo(score - margin)) / 2;
+        return String.format(Locale.US, "Elo %+.1f +/- %.1f", elo, error);
+    }
+
+    private synchronized void report(long elapsedNanos) {
+        System.out.println(String.format(Locale.US, "Result: %d games  +%d =%d -%d  score %.1f%%",
+                played, wins, draws, losses, 100.0 * (wins + draws / 2.0) / Math.max(1, played)));
+        if (played > 0) {
+            System.out.println(eloString() + " (95%)");
+        }
+        if (adjudicated > 0) {
+            System.out.println(adjudicated + " draws adjudicated at " + maxPlies + " plies");
+        }
+        System.out.println("SPRT: " + (verdict != null ? verdict : String.format(Locale.US,
+                "inconclusive, LLR %.2f in (%.2f, %.2f)", llr(), lowerBound, upperBound)));
+        for (int i = 0; i < 2; i++) {
+            System.out.println(String.format(Locale.US, "%s average move time %.2f ms",
+                    i == 0 ? "A" : "B", moveNanos[i] / 1e6 / Math.max(1, moveCounts[i])));
+        }
+        System.out.println(String.format(Locale.US, "Throughput %.2f games/s", played * 1e9 / elapsedNanos));
+        PerfStats.dump(new PrintWriter(System.out), "Arena counters, both engines");
+    }
+
+    private static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double elo(double score) {
+        score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double sq(double x) {
+        return x * x;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.chinesedarkchess;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds {@link Tablebase} files for every material signature of 2 up to {@code maxPieces}
+ * face-up pieces by retrograde analysis, smallest material first so captures can look up
+ * finished tables. Moves and game-over rules come from {@link Board} itself.
+ * <p>
+ * Each table is solved in passes over a successor graph built once: pass {@code n} marks
+ * positions won in {@code n} plies and any position whose successors are all decided wins
+ * for the opponent. Distances count plies to the next capture or the end of the game, since a
+ * capture restarts {@link Board#NO_PROGRESS_LIMIT}; a result that takes longer than the limit
+ * is left undecided, and whatever is undecided at the end is a draw. So a table entry is the
+ * result with the no-progress count at zero, as it is right after the capture that reached
+ * the material. The distances only steer the passes; files keep the win, draw or loss.
+ * Run with {@code gradlew :core:tablebases --args="[maxPieces] [outputDir]"}.
+ */
+public class TablebaseGenerator {
+    // Pieces per rank at the start of the game
+    private static final int[] RANK_COUNTS = {1, 2, 2, 2, 2, 5, 2};
+    // Successor entries at or above this hold a finished result for the mover, biased by 128,
+    // instead of an index into the table being solved
+    private static final int FIXED = 1 << 24;
+
+    private final Board board = new Board(0);
+    private final int[] moves = new int[Move.MAX_MOVES];
+    private final Map<Integer, byte[]> finished = new HashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        int maxPieces = args.length > 0 ? Integer.parseInt(args[0]) : Tablebase.MAX_PIECES;
+        File output = new File(args.length > 1 ? args[1] : "tablebases");
+        if (maxPieces > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Tablebase indexes support at most " + Tablebase.MAX_PIECES + " pieces");
+        }
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Cannot create " + output);
+        }
+        new TablebaseGenerator().generate(maxPieces, output);
+    }
+
+    void generate(int maxPieces, File output) throws IOException {
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            List<int[]> signatures = new ArrayList<>();
+            enumerate(new int[pieces], 0, 0, signatures);
+            long start = System.currentTimeMillis();
+            long wins = 0, losses = 0, draws = 0, bytes = 0;
+            int longest = 0;
+            for (int[] codes : signatures) {
+                byte[] table = solve(codes);
+                int signature = Tablebase.signature(codes);
+                // Only captures out of larger tables read these results again
+                if (pieces < maxPieces) finished.put(signature, table);
+                byte[] packed = pack(table);
+                write(new File(output, Tablebase.name(signature)), packed);
+                bytes += packed.length;
+                for (byte value : table) {
+                    if (value > 0) wins++;
+                    else if (value < 0) losses++;
+                    else draws++;
+                    longest = Math.max(longest, Math.abs(value));
+                }
+            }
+            System.out.println(pieces + " pieces: " + signatures.size() + " tables, " + bytes + " bytes, "
+                    + wins + " wins, " + losses + " losses, " + draws + " draws or finished games, "
+                    + "longest " + longest + " plies to a capture, in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /** Two bits per entry, four entries to a byte, in the layout {@link Tablebase#probe} reads. */
+    static byte[] pack(byte[] values) {
+        byte[] packed = new byte[Tablebase.bytes(values.length)];
+        for (int i = 0; i < values.length; i++) {
+            int stored = values[i] > 0 ? Tablebase.STORED_WIN : values[i] < 0 ? Tablebase.STORED_LOSS : Tablebase.STORED_DRAW;
+            packed[i >>> 2] |= stored << ((i & 3) << 1);
+        }
+        return packed;
+    }
+
+    /** Every multiset of piece codes the game can produce with both colors present. */
+    private static void enumerate(int[] codes, int filled, int fromCode, List<int[]> out) {
+        if (filled == codes.length) {
+            int red = 0;
+            for (int code : codes) {
+                if (Board.colorOf(code) == Board.RED) red++;
+            }
+            // A color-swapped signature shares its twin's table
+            if (red > 0 && red < codes.length && !Tablebase.isSwappedSignature(codes)) out.add(codes.clone());
+            return;
+        }
+        for (int code = fromCode; code < 14; code++) {
+            int same = 0;
+            for (int i = 0; i < filled; i++) {
+                if (codes[i] == code) same++;
+            }
+            if (same >= RANK_COUNTS[Board.rankOf(code)]) continue;
+            codes[filled] = code;
+            enumerate(codes, filled + 1, code, out);
+        }
+    }
+
+    /**
+     * Plies to the capture or game end that settles the result, as {@link #forMover} counts
+     * them, for every entry of the table for {@code codes}; 0 for draws.
+     */
+    byte[] solve(int[] codes) {
+        int count = codes.length;
+        int size = Tablebase.size(codes);
+        int[] squareList = new int[count];
+        // Successor lists in compressed rows: successors[first[i] .. first[i + 1])
+        int[] first = new int[size + 1];
+        int[] successors = new int[size * 8];
+        int used = 0;
+        boolean[] playable = new boolean[size];
+
+        for (int index = 0; index < size; index++) {
+            first[index] = used;
+            int player = Tablebase.decode(codes, index, squareList);
+            board.setPosition(codes, squareList, count, player);
+            if (board.getGameStatus() != Board.GameStatus.ONGOING) continue;
+            playable[index] = true;
+            int toMove = board.getCurrentPlayer().ordinal();
+            int moveCount = MoveGenerator.generateAll(board, toMove, moves, 0);
+            if (used + moveCount > successors.length) {
+                successors = Arrays.copyOf(successors, successors.length * 2);
+            }
+            for (int i = 0; i < moveCount; i++) {
+                board.makeMove(moves[i]);
+                successors[used++] = successor(toMove, count);
+                board.unmakeMove();
+            }
+        }
+        first[size] = used;
+
+        byte[] values = new byte[size];
+        boolean[] decided = new boolean[size];
+        for (int pass = 1; pass <= Board.NO_PROGRESS_LIMIT; pass++) {
+            boolean changed = false;
+            // Wins longer than this pass, found through results decided out of turn, still to confirm
+            boolean pending = false;
+            for (int index = 0; index < size; index++) {
+                if (!playable[index] || decided[index]) continue;
+                int best = Integer.MIN_VALUE;
+                int bestValue = 0;
+                boolean allDecided = true;
+                for (int s = first[index]; s < first[index + 1]; s++) {
+                    int successor = successors[s];
+                    int ours;
+                    if (successor >= FIXED) {
+                        ours = successor - FIXED - 128;
+                    } else if (decided[successor]) {
+                        ours = forMover(values[successor]);
+                    } else {
+                        allDecided = false;
+                        continue;
+                    }
+                    int rank = ours > 0 ? 1000 - ours : ours < 0 ? -1000 - ours : 0;
+                    if (rank > best) {
+                        best = rank;
+                        bestValue = ours;
+                    }
+                }
+                // Wins are only final in the pass matching their distance; a shorter one may still appear.
+                // A loss the defender can drag past the no-progress limit is a draw.
+                boolean win = bestValue > 0 && bestValue <= pass;
+                boolean loss = allDecided && best < 0 && -bestValue <= Board.NO_PROGRESS_LIMIT;
+                pending |= bestValue > pass;
+                if (win || loss) {
+                    values[index] = (byte) bestValue;
+                    decided[index] = true;
+                    changed = true;
+                }
+            }
+            if (!changed && !pending) break;
+        }
+        return values;
+    }
+
+    /** Turns the value of the position after a move, for the opponent, into the mover's value. */
+    private static int forMover(int value) {
+        return value > 0 ? -(value + 1) : value < 0 ? 1 - value : 0;
+    }
+
+    /**
+     * Encodes the position just reached: an index into this table, or a finished result. A
+     * capture settles the result one ply on, whatever the smaller table's distance, because
+     * it starts the no-progress count again.
+     */
+    private int successor(int mover, int count) {
+        Board.GameStatus status = board.getGameStatus();
+        if (status != Board.GameStatus.ONGOING) {
+            int winner = status == Board.GameStatus.RED_WIN ? Board.RED : Board.BLACK;
+            return FIXED + 128 + (winner == mover ? 1 : -1);
+        }
+        if (Integer.bitCount(~board.getEmptyMask()) == count) {
+            return Tablebase.index(board);
+        }
+        byte[] smaller = finished.get(Tablebase.signature(board));
+        return FIXED + 128 - Integer.signum(smaller[Tablebase.index(board)]);
+    }
+
+    private static void write(File file, byte[] table) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(table);
+        } finally {
+            out.close();
+        }
+    }
+}